@@ -1 +1 @@
-module tinam { exports tinam; }
+module tinam { requires static jdk.jfr; exports tinam; uses tinam.Provider; }
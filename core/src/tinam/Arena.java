@@ -0,0 +1,390 @@
+package tinam;
+
+import static tinam.Encoder.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import tinam.Rule.*;
+import tinam.Pattern.*;
+
+public final class Arena {
+  public static Arena of(Grammar converted) {
+    return new Builder().build(converted);
+  }
+
+  static Arena of(Pattern converted) {
+    return new Builder().build(converted);
+  }
+
+  private final byte[] kinds;
+  private final int[]  offsets;
+  private final int[]  operands;
+  private final char[] text;
+  private final int[]  bounds;
+  private final int    name;
+  private final int    extension;
+  private final int[]  topLevel;
+  private final int[]  repository;
+  private final int    root;
+
+  private Arena(byte[] kinds, int[] offsets, int[] operands, char[] text,
+    int[] bounds, int name, int extension, int[] topLevel, int[] repository,
+    int root) {
+    this.kinds      = kinds;
+    this.offsets    = offsets;
+    this.operands   = operands;
+    this.text       = text;
+    this.bounds     = bounds;
+    this.name       = name;
+    this.extension  = extension;
+    this.topLevel   = topLevel;
+    this.repository = repository;
+    this.root       = root;
+  }
+
+  public String name() { return string(name); }
+  public String extension() { return string(extension); }
+  public int nodes() { return kinds.length; }
+
+  public long bytes() {
+    return aligned(12 + 4 * 10) + aligned(16 + kinds.length)
+      + ints(offsets.length) + ints(operands.length)
+      + aligned(16 + 2L * text.length) + ints(bounds.length)
+      + ints(topLevel.length) + ints(repository.length);
+  }
+
+  private static long ints(int count) { return aligned(16 + 4L * count); }
+  private static long aligned(long bytes) { return (bytes + 7) & ~7; }
+
+  public int[] patterns() {
+    var visited = new BitSet(kinds.length);
+    var result  = new int[kinds.length];
+    var count   = 0;
+    for (var node = 0; node < kinds.length; node++) {
+      var patterns = switch (kinds[node]) {
+      case CONDITIONAL -> 1;
+      case DELIMITATED -> 2;
+      default -> 0;
+      };
+      for (var i = 1; i <= patterns; i++) {
+        var pattern = operand(node, i);
+        if (visited.get(pattern)) continue;
+        visited.set(pattern);
+        result[count++] = pattern;
+      }
+    }
+    return Arrays.copyOf(result, count);
+  }
+
+  public Matcher matcher(int pattern) { return new Compiled(this, pattern); }
+
+  public Pattern pattern(int node) { return converter().pattern(node); }
+
+  public Grammar grammar() {
+    var converter = converter();
+    var topLevel  = new ArrayList<Rule>(this.topLevel.length);
+    for (var rule : this.topLevel) topLevel.add(converter.rule(rule));
+    var repository = new LinkedHashMap<Rule, String>();
+    for (var i = 0; i < this.repository.length; i += 2)
+      repository.put(converter.rule(this.repository[i]),
+        converter.string(this.repository[i + 1]));
+    return Grammar.of(name(), extension(),
+      Collections.unmodifiableList(topLevel),
+      Collections.unmodifiableMap(repository));
+  }
+
+  int root() { return root; }
+  int topLevelSize() { return topLevel.length; }
+  int topLevelRule(int index) { return topLevel[index]; }
+  int repositorySize() { return repository.length / 2; }
+  int repositoryRule(int index) { return repository[index * 2]; }
+
+  String repositoryName(int index) {
+    return string(repository[index * 2 + 1]);
+  }
+
+  byte kind(int node) { return kinds[node]; }
+  int size(int node) { return offsets[node + 1] - offsets[node]; }
+
+  int operand(int node, int index) {
+    return operands[offsets[node] + index];
+  }
+
+  String string(int node, int index) { return string(operand(node, index)); }
+
+  String scope(int rule) {
+    var scope = operand(rule, 0);
+    return scope == -1 ? null : string(scope);
+  }
+
+  Converter converter() { return new Converter(); }
+
+  private String string(int string) {
+    var start = bounds[string];
+    return new String(text, start, bounds[string + 1] - start);
+  }
+
+  int innerStart(int rule) {
+    return switch (kinds[rule]) {
+    case UNCONDITIONAL -> 1;
+    case CONDITIONAL -> 2;
+    case DELIMITATED -> 3;
+    default -> throw new RuntimeException(
+      "Node [%d] of kind [%d] is not a rule!".formatted(rule, kinds[rule]));
+    };
+  }
+
+  final class Converter {
+    private final Object[] converted = new Object[kinds.length];
+    private final String[] strings   = new String[bounds.length - 1];
+
+    Pattern pattern(int node) { return (Pattern) convert(node); }
+    Rule rule(int node) { return (Rule) convert(node); }
+
+    private Object convert(int node) {
+      if (converted[node] != null) return converted[node];
+      var result = switch (kinds[node]) {
+      case ONE -> new One(string(node, 0));
+      case NOT_ONE -> new NotOne(string(node, 0));
+      case RANGE ->
+        new Range((char) operand(node, 0), (char) operand(node, 1));
+      case NOT_RANGE ->
+        new NotRange((char) operand(node, 0), (char) operand(node, 1));
+      case ANY -> Pattern.ANY;
+      case ALL -> new All(string(node, 0));
+      case START -> Pattern.START;
+      case END -> Pattern.END;
+      case OR -> new Or(list(node, 0, Pattern.class));
+      case AND -> new And(list(node, 0, Pattern.class));
+      case REPEAT -> new Repeat(pattern(node, 0), operand(node, 1),
+        operand(node, 2));
+      case INFINITE_REPEAT ->
+        new InfiniteRepeat(pattern(node, 0), operand(node, 1));
+      case LOOKUP -> new Lookup(pattern(node, 0),
+        (operand(node, 1) & LOOKUP_WANTED) != 0,
+        (operand(node, 1) & LOOKUP_BEHIND) != 0);
+      case CAPTURE ->
+        new Capture(pattern(node, 0), rule(operand(node, 1)));
+      case UNCONDITIONAL -> new Unconditional(data(node));
+      case CONDITIONAL -> new Conditional(data(node), pattern(node, 1));
+      case DELIMITATED ->
+        new Delimitated(data(node), pattern(node, 1), pattern(node, 2));
+      default -> throw new RuntimeException(
+        "Node [%d] has unknown kind [%d]!".formatted(node, kinds[node]));
+      };
+      converted[node] = result;
+      return result;
+    }
+
+    String string(int string) {
+      if (strings[string] == null) strings[string] = Arena.this.string(string);
+      return strings[string];
+    }
+
+    private String string(int node, int index) {
+      return string(operand(node, index));
+    }
+
+    private Pattern pattern(int node, int index) {
+      return pattern(operand(node, index));
+    }
+
+    private Data data(int rule) {
+      var scope = operand(rule, 0);
+      return new Data(
+        scope == -1 ? Optional.empty() : Optional.of(string(scope)),
+        list(rule, innerStart(rule), Rule.class));
+    }
+
+    private <T> List<T> list(int node, int from, Class<T> type) {
+      var list = new ArrayList<T>(size(node) - from);
+      for (var i = from; i < size(node); i++)
+        list.add(type.cast(convert(operand(node, i))));
+      return Collections.unmodifiableList(list);
+    }
+  }
+
+  private static final class Structure {
+    private final int   kind;
+    private final int[] operands;
+    private final int   hash;
+
+    Structure(int kind, int[] operands) {
+      this.kind     = kind;
+      this.operands = operands;
+      hash          = kind * 31 + Arrays.hashCode(operands);
+    }
+
+    @Override
+    public boolean equals(Object other) {
+      return other instanceof Structure structure && structure.kind == kind
+        && Arrays.equals(structure.operands, operands);
+    }
+
+    @Override
+    public int hashCode() { return hash; }
+  }
+
+  private static final class Builder {
+    private final Map<Object, Integer>    identities;
+    private final Map<Structure, Integer> structures;
+    private final Map<String, Integer>    strings;
+    private final StringBuilder           text;
+
+    private byte[] kinds;
+    private int[]  offsets;
+    private int[]  operands;
+    private int[]  bounds;
+    private int    nodes;
+    private int    size;
+
+    Builder() {
+      identities = new IdentityHashMap<>();
+      structures = new HashMap<>();
+      strings    = new HashMap<>();
+      text       = new StringBuilder();
+      kinds      = new byte[64];
+      offsets    = new int[65];
+      operands   = new int[256];
+      bounds     = new int[65];
+    }
+
+    Arena build(Pattern converted) {
+      var empty = intern("");
+      var root  = node(converted);
+      return build(empty, empty, new int[0], new int[0], root);
+    }
+
+    Arena build(Grammar converted) {
+      var name      = intern(converted.name());
+      var extension = intern(converted.extension());
+      var topLevel  = new int[converted.topLevel().size()];
+      for (var i = 0; i < topLevel.length; i++)
+        topLevel[i] = node(converted.topLevel().get(i));
+      var repository = new int[converted.repository().size() * 2];
+      var index      = 0;
+      for (var entry : converted.repository().entrySet()) {
+        repository[index++] = node(entry.getKey());
+        repository[index++] = intern(entry.getValue());
+      }
+      return build(name, extension, topLevel, repository, -1);
+    }
+
+    private Arena build(int name, int extension, int[] topLevel,
+      int[] repository, int root) {
+      var count = strings.size();
+      var chars = new char[text.length()];
+      text.getChars(0, chars.length, chars, 0);
+      return new Arena(Arrays.copyOf(kinds, nodes),
+        Arrays.copyOf(offsets, nodes + 1), Arrays.copyOf(operands, size),
+        chars, Arrays.copyOf(bounds, count + 1), name, extension, topLevel,
+        repository, root);
+    }
+
+    private int intern(String string) {
+      var index = strings.get(string);
+      if (index != null) return index;
+      index = strings.size();
+      if (index + 1 == bounds.length)
+        bounds = Arrays.copyOf(bounds, bounds.length * 2);
+      text.append(string);
+      bounds[index + 1] = text.length();
+      strings.put(string, index);
+      return index;
+    }
+
+    private int node(Object converted) {
+      var index = identities.get(converted);
+      if (index != null) return index;
+      index = switch (converted) {
+      case Pattern pattern -> pattern(pattern);
+      case Rule rule -> rule(rule);
+      default -> throw new RuntimeException("Node type `%s` is not arenable!"
+        .formatted(converted.getClass().getSimpleName()));
+      };
+      identities.put(converted, index);
+      return index;
+    }
+
+    private int pattern(Pattern pattern) {
+      return switch (pattern) {
+      case One one -> add(ONE, intern(one.set()));
+      case NotOne notOne -> add(NOT_ONE, intern(notOne.set()));
+      case Range range -> add(RANGE, range.first(), range.last());
+      case NotRange notRange ->
+        add(NOT_RANGE, notRange.first(), notRange.last());
+      case Any any -> add(ANY);
+      case All all -> add(ALL, intern(all.characters()));
+      case Start start -> add(START);
+      case End end -> add(END);
+      case Or or -> list(OR, or.alternatives());
+      case And and -> list(AND, and.sequence());
+      case Repeat repeat -> add(REPEAT, node(repeat.repeated()),
+        repeat.minimum(), repeat.maximum());
+      case InfiniteRepeat infiniteRepeat -> add(INFINITE_REPEAT,
+        node(infiniteRepeat.repeated()), infiniteRepeat.minimum());
+      case Lookup lookup -> add(LOOKUP, node(lookup.looked()),
+        (lookup.wanted() ? LOOKUP_WANTED : 0)
+          | (lookup.behind() ? LOOKUP_BEHIND : 0));
+      case Capture capture ->
+        add(CAPTURE, node(capture.pattern()), node(capture.rule()));
+      };
+    }
+
+    private int list(byte kind, List<Pattern> patterns) {
+      var children = new int[patterns.size()];
+      for (var i = 0; i < children.length; i++)
+        children[i] = node(patterns.get(i));
+      return add(kind, children);
+    }
+
+    private int rule(Rule rule) {
+      var patterns = switch (rule) {
+      case Unconditional unconditional -> new int[0];
+      case Conditional conditional ->
+        new int[] { node(conditional.condition()) };
+      case Delimitated delimitated -> new int[] {
+        node(delimitated.initializer()), node(delimitated.terminator()) };
+      };
+      var inner    = rule.data().inner();
+      var operands = new int[1 + patterns.length + inner.size()];
+      operands[0] = rule.data().scope().map(this::intern).orElse(-1);
+      System.arraycopy(patterns, 0, operands, 1, patterns.length);
+      for (var i = 0; i < inner.size(); i++)
+        operands[1 + patterns.length + i] = node(inner.get(i));
+      return add(switch (rule) {
+      case Unconditional unconditional -> UNCONDITIONAL;
+      case Conditional conditional -> CONDITIONAL;
+      case Delimitated delimitated -> DELIMITATED;
+      }, operands);
+    }
+
+    private int add(byte kind, int... nodeOperands) {
+      var structure = new Structure(kind, nodeOperands);
+      var index     = structures.get(structure);
+      if (index != null) return index;
+      if (nodes == kinds.length) {
+        kinds   = Arrays.copyOf(kinds, nodes * 2);
+        offsets = Arrays.copyOf(offsets, nodes * 2 + 1);
+      }
+      if (size + nodeOperands.length > operands.length) operands =
+        Arrays.copyOf(operands, Math.max(operands.length * 2,
+          size + nodeOperands.length));
+      System.arraycopy(nodeOperands, 0, operands, size, nodeOperands.length);
+      size            += nodeOperands.length;
+      kinds[nodes]     = kind;
+      offsets[++nodes] = size;
+      structures.put(structure, nodes - 1);
+      return nodes - 1;
+    }
+  }
+}
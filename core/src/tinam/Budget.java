@@ -0,0 +1,20 @@
+package tinam;
+
+public record Budget(long steps, long nanoseconds) {
+  public static final Budget UNLIMITED =
+    new Budget(Long.MAX_VALUE, Long.MAX_VALUE);
+
+  public static Budget of(long steps, long nanoseconds) {
+    if (steps <= 0) throw new RuntimeException(
+      "Step budget [%d] must be positive!".formatted(steps));
+    if (nanoseconds <= 0) throw new RuntimeException(
+      "Time budget [%d ns] must be positive!".formatted(nanoseconds));
+    return new Budget(steps, nanoseconds);
+  }
+
+  public long deadline(long start) {
+    return Long.MAX_VALUE - start < nanoseconds
+      ? Long.MAX_VALUE
+      : start + nanoseconds;
+  }
+}
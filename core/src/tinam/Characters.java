@@ -0,0 +1,222 @@
+package tinam;
+
+import static tinam.Encoder.*;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+final class Characters {
+  private Characters() {}
+
+  static List<BitSet> fixed(Pattern pattern) {
+    var steps = new ArrayList<BitSet>();
+    return fixed(pattern, steps) ? steps : null;
+  }
+
+  static boolean fixed(Pattern pattern, List<BitSet> steps) {
+    var arena = Arena.of(pattern);
+    return fixed(arena, arena.root(), steps);
+  }
+
+  static boolean prefix(Pattern pattern, List<BitSet> prefix) {
+    var arena = Arena.of(pattern);
+    return prefix(arena, arena.root(), prefix);
+  }
+
+  static int width(Pattern pattern) {
+    var arena = Arena.of(pattern);
+    return width(arena, arena.root());
+  }
+
+  static boolean fixed(Arena arena, int node, List<BitSet> steps) {
+    var set = set(arena, node);
+    if (set != null) {
+      steps.add(set);
+      return true;
+    }
+    switch (arena.kind(node)) {
+    case ALL -> {
+      var characters = arena.string(node, 0);
+      for (var i = 0; i < characters.length(); i++)
+        steps.add(setOf(characters.charAt(i)));
+      return true;
+    }
+    case AND -> {
+      for (var i = 0; i < arena.size(node); i++)
+        if (!fixed(arena, arena.operand(node, i), steps)) return false;
+      return true;
+    }
+    case REPEAT -> {
+      var minimum = arena.operand(node, 1);
+      if (minimum != arena.operand(node, 2)) return false;
+      for (var i = 0; i < minimum; i++)
+        if (!fixed(arena, arena.operand(node, 0), steps)) return false;
+      return true;
+    }
+    case CAPTURE -> {
+      return fixed(arena, arena.operand(node, 0), steps);
+    }
+    default -> {
+      return false;
+    }
+    }
+  }
+
+  static boolean prefix(Arena arena, int node, List<BitSet> prefix) {
+    var set = set(arena, node);
+    if (set != null) {
+      prefix.add(set);
+      return true;
+    }
+    switch (arena.kind(node)) {
+    case ALL -> {
+      var characters = arena.string(node, 0);
+      for (var i = 0; i < characters.length(); i++)
+        prefix.add(setOf(characters.charAt(i)));
+      return true;
+    }
+    case START -> {
+      return true;
+    }
+    case END -> {
+      return true;
+    }
+    case LOOKUP -> {
+      return true;
+    }
+    case AND -> {
+      for (var i = 0; i < arena.size(node); i++)
+        if (!prefix(arena, arena.operand(node, i), prefix)) return false;
+      return true;
+    }
+    case OR -> {
+      List<BitSet> common = null;
+      var         whole  = true;
+      for (var i = 0; i < arena.size(node); i++) {
+        var alternativePrefix = new ArrayList<BitSet>();
+        whole &= prefix(arena, arena.operand(node, i), alternativePrefix);
+        if (common == null) {
+          common = alternativePrefix;
+          continue;
+        }
+        whole &= common.size() == alternativePrefix.size();
+        while (common.size() > alternativePrefix.size())
+          common.remove(common.size() - 1);
+        for (var j = 0; j < common.size(); j++)
+          common.set(j, setUnion(common.get(j), alternativePrefix.get(j)));
+      }
+      prefix.addAll(common);
+      return whole;
+    }
+    case REPEAT -> {
+      var minimum = arena.operand(node, 1);
+      for (var i = 0; i < minimum; i++)
+        if (!prefix(arena, arena.operand(node, 0), prefix)) return false;
+      return minimum == arena.operand(node, 2);
+    }
+    case INFINITE_REPEAT -> {
+      for (var i = 0; i < arena.operand(node, 1); i++)
+        if (!prefix(arena, arena.operand(node, 0), prefix)) return false;
+      return false;
+    }
+    case CAPTURE -> {
+      return prefix(arena, arena.operand(node, 0), prefix);
+    }
+    default -> {
+      return false;
+    }
+    }
+  }
+
+  static int width(Arena arena, int node) {
+    return switch (arena.kind(node)) {
+    case ALL -> arena.string(node, 0).length();
+    case START -> 0;
+    case END -> 0;
+    case LOOKUP -> 0;
+    case OR -> {
+      var result = 0;
+      for (var i = 0; i < arena.size(node); i++) {
+        var width = width(arena, arena.operand(node, i));
+        if (width == -1) yield -1;
+        result = Math.max(result, width);
+      }
+      yield result;
+    }
+    case AND -> {
+      var result = 0;
+      for (var i = 0; i < arena.size(node); i++) {
+        var width = width(arena, arena.operand(node, i));
+        if (width == -1) yield -1;
+        result += width;
+      }
+      yield result;
+    }
+    case REPEAT -> {
+      var width = width(arena, arena.operand(node, 0));
+      yield width == -1 ? -1 : width * arena.operand(node, 2);
+    }
+    case INFINITE_REPEAT -> -1;
+    case CAPTURE -> width(arena, arena.operand(node, 0));
+    default -> 1;
+    };
+  }
+
+  static BitSet set(Arena arena, int node) {
+    return switch (arena.kind(node)) {
+    case ONE -> setOf(arena.string(node, 0).toCharArray());
+    case NOT_ONE -> setComplement(setOf(arena.string(node, 0).toCharArray()));
+    case RANGE -> setOf((char) arena.operand(node, 0),
+      (char) arena.operand(node, 1), false);
+    case NOT_RANGE -> setOf((char) arena.operand(node, 0),
+      (char) arena.operand(node, 1), true);
+    case ANY -> setComplement(setOf('\n'));
+    case ALL -> {
+      var characters = arena.string(node, 0);
+      yield characters.length() == 1 ? setOf(characters.charAt(0)) : null;
+    }
+    case OR -> {
+      var result = new BitSet();
+      for (var i = 0; i < arena.size(node); i++) {
+        var alternativeSet = set(arena, arena.operand(node, i));
+        if (alternativeSet == null) yield null;
+        result.or(alternativeSet);
+      }
+      yield result;
+    }
+    case CAPTURE -> set(arena, arena.operand(node, 0));
+    default -> null;
+    };
+  }
+
+  static BitSet setOf(char... members) {
+    var result = new BitSet();
+    for (var member : members) result.set(member);
+    return result;
+  }
+
+  static BitSet setOf(char first, char last, boolean complemented) {
+    var result = new BitSet();
+    result.set(first, last + 1);
+    if (complemented) result.flip(Character.MIN_VALUE, Character.MAX_VALUE + 1);
+    return result;
+  }
+
+  static BitSet setComplement(BitSet set) {
+    set.flip(Character.MIN_VALUE, Character.MAX_VALUE + 1);
+    return set;
+  }
+
+  static BitSet setUnion(BitSet first, BitSet second) {
+    var result = (BitSet) first.clone();
+    result.or(second);
+    return result;
+  }
+
+  static boolean setContains(BitSet container, BitSet contained) {
+    var difference = (BitSet) contained.clone();
+    difference.andNot(container);
+    return difference.isEmpty();
+  }
+}
@@ -0,0 +1,469 @@
+package tinam;
+
+import static tinam.Encoder.*;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+
+final class Compiled implements Matcher {
+  private static final int UNROLLED = 4;
+
+  private abstract static class Node {
+    abstract boolean match(Match match, int at);
+  }
+
+  private static final class Accept extends Node {
+    @Override
+    boolean match(Match match, int at) {
+      match.groups[1] = at;
+      return true;
+    }
+  }
+
+  private static final class Succeed extends Node {
+    @Override
+    boolean match(Match match, int at) { return true; }
+  }
+
+  private static final class Single extends Node {
+    private final char character;
+    private final Node next;
+
+    Single(char character, Node next) {
+      this.character = character;
+      this.next      = next;
+    }
+
+    @Override
+    boolean match(Match match, int at) {
+      return at < match.length && match.input.charAt(at) == character
+        && next.match(match, at + 1);
+    }
+  }
+
+  private static final class Literal extends Node {
+    private final char[] characters;
+    private final Node   next;
+
+    Literal(String characters, Node next) {
+      this.characters = characters.toCharArray();
+      this.next       = next;
+    }
+
+    @Override
+    boolean match(Match match, int at) {
+      if (at + characters.length > match.length) return false;
+      var input = match.input;
+      for (var i = 0; i < characters.length; i++)
+        if (input.charAt(at + i) != characters[i]) return false;
+      return next.match(match, at + characters.length);
+    }
+  }
+
+  private static final class Span extends Node {
+    private final char first;
+    private final char last;
+    private final Node next;
+
+    Span(char first, char last, Node next) {
+      this.first = first;
+      this.last  = last;
+      this.next  = next;
+    }
+
+    @Override
+    boolean match(Match match, int at) {
+      if (at >= match.length) return false;
+      var character = match.input.charAt(at);
+      return character >= first && character <= last
+        && next.match(match, at + 1);
+    }
+  }
+
+  private static final class Set extends Node {
+    private final BitSet set;
+    private final Node   next;
+
+    Set(BitSet set, Node next) {
+      this.set  = set;
+      this.next = next;
+    }
+
+    @Override
+    boolean match(Match match, int at) {
+      return at < match.length && set.get(match.input.charAt(at))
+        && next.match(match, at + 1);
+    }
+  }
+
+  private static final class SetLoop extends Node {
+    private final BitSet set;
+    private final int    minimum;
+    private final int    maximum;
+    private final Node   next;
+
+    SetLoop(BitSet set, int minimum, int maximum, Node next) {
+      this.set     = set;
+      this.minimum = minimum;
+      this.maximum = maximum;
+      this.next    = next;
+    }
+
+    @Override
+    boolean match(Match match, int at) {
+      var input = match.input;
+      var limit = match.length - at > maximum ? at + maximum : match.length;
+      var end   = at;
+      while (end < limit && set.get(input.charAt(end))) end++;
+      for (var least = at + minimum; end >= least && match.step(); end--)
+        if (next.match(match, end)) return true;
+      return false;
+    }
+  }
+
+  private static final class Start extends Node {
+    private final Node next;
+
+    Start(Node next) { this.next = next; }
+
+    @Override
+    boolean match(Match match, int at) {
+      return at == 0 && next.match(match, at);
+    }
+  }
+
+  private static final class End extends Node {
+    private final Node next;
+
+    End(Node next) { this.next = next; }
+
+    @Override
+    boolean match(Match match, int at) {
+      return at == match.length && next.match(match, at);
+    }
+  }
+
+  private static final class Branch extends Node {
+    private final Node[] alternatives;
+
+    Branch(Node[] alternatives) { this.alternatives = alternatives; }
+
+    @Override
+    boolean match(Match match, int at) {
+      for (var alternative : alternatives) {
+        if (!match.step()) return false;
+        if (alternative.match(match, at)) return true;
+      }
+      return false;
+    }
+  }
+
+  private static final class Loop extends Node implements Repetition.Body {
+    private final int minimum;
+    private final int maximum;
+    private final int index;
+    private final int group;
+    private final int captures;
+    private Node      repeated;
+    private Node      next;
+
+    Loop(int minimum, int maximum, int index, int group, int captures) {
+      this.minimum  = minimum;
+      this.maximum  = maximum;
+      this.index    = index;
+      this.group    = group;
+      this.captures = captures;
+    }
+
+    @Override
+    boolean match(Match match, int at) {
+      return match.repetition(index).run(match, at, minimum, maximum, group,
+        captures, this);
+    }
+
+    @Override
+    public boolean iterate(Match match, int at) {
+      return repeated.match(match, at);
+    }
+
+    @Override
+    public boolean exit(Match match, int at) { return next.match(match, at); }
+  }
+
+  private static final class Collect extends Node {
+    private final int index;
+
+    Collect(int index) { this.index = index; }
+
+    @Override
+    boolean match(Match match, int at) {
+      return match.repetitions[index].record(match, at);
+    }
+  }
+
+  private static final class Open extends Node {
+    private final int  group;
+    private final Node captured;
+
+    Open(int group, Node captured) {
+      this.group    = group;
+      this.captured = captured;
+    }
+
+    @Override
+    boolean match(Match match, int at) {
+      var start = match.starts[group];
+      match.starts[group] = at;
+      var result = captured.match(match, at);
+      match.starts[group] = start;
+      return result;
+    }
+  }
+
+  private static final class Close extends Node {
+    private final int  group;
+    private final Node next;
+
+    Close(int group, Node next) {
+      this.group = group;
+      this.next  = next;
+    }
+
+    @Override
+    boolean match(Match match, int at) {
+      var start = match.groups[group * 2];
+      var end   = match.groups[group * 2 + 1];
+      match.groups[group * 2]     = match.starts[group];
+      match.groups[group * 2 + 1] = at;
+      if (next.match(match, at)) return true;
+      match.groups[group * 2]     = start;
+      match.groups[group * 2 + 1] = end;
+      return false;
+    }
+  }
+
+  private static final class Look extends Node {
+    private final Node[]  looked;
+    private final int[]   lengths;
+    private final boolean wanted;
+    private final boolean captures;
+    private final Node    next;
+
+    Look(Node[] looked, int[] lengths, boolean wanted, boolean captures,
+      Node next) {
+      this.looked   = looked;
+      this.lengths  = lengths;
+      this.wanted   = wanted;
+      this.captures = captures;
+      this.next     = next;
+    }
+
+    @Override
+    boolean match(Match match, int at) {
+      var saved = captures ? match.groups.clone() : null;
+      var found = false;
+      for (var i = 0; !found && i < looked.length && match.step(); i++)
+        found = at >= lengths[i] && looked[i].match(match, at - lengths[i]);
+      if (found == wanted && next.match(match, at)) return true;
+      if (captures) System.arraycopy(saved, 0, match.groups, 0, saved.length);
+      return false;
+    }
+  }
+
+  private static final class Behind extends Node {
+    private final int     width;
+    private final int     index;
+    private final boolean wanted;
+    private final boolean captures;
+    private Node          looked;
+    private Node          next;
+
+    Behind(int width, int index, boolean wanted, boolean captures) {
+      this.width    = width;
+      this.index    = index;
+      this.wanted   = wanted;
+      this.captures = captures;
+    }
+
+    @Override
+    boolean match(Match match, int at) {
+      var saved = captures ? match.groups.clone() : null;
+      var least = width == -1 || width > at ? 0 : at - width;
+      var found = false;
+      match.targets[index] = at;
+      for (var start = at; !found && start >= least && match.step(); start--)
+        found = looked.match(match, start);
+      if (found == wanted && next.match(match, at)) return true;
+      if (captures) System.arraycopy(saved, 0, match.groups, 0, saved.length);
+      return false;
+    }
+  }
+
+  private static final class Reach extends Node {
+    private final int index;
+
+    Reach(int index) { this.index = index; }
+
+    @Override
+    boolean match(Match match, int at) {
+      return at == match.targets[index];
+    }
+  }
+
+  private final Arena  arena;
+  private final Node   start;
+  private final BitSet first;
+  private final int    captures;
+  private int          loops;
+  private int          targets;
+
+  Compiled(Arena arena, int pattern) {
+    this.arena = arena;
+    captures   = count(pattern);
+    start      = compile(pattern, 1, new Accept());
+    var prefix = new ArrayList<BitSet>();
+    Characters.prefix(arena, pattern, prefix);
+    first = prefix.isEmpty() ? null : prefix.get(0);
+  }
+
+  @Override
+  public Match newMatch() { return new Match(captures, loops, targets); }
+
+  @Override
+  public boolean match(Match match, int at) {
+    match.attempt();
+    match.groups[0] = at;
+    if (start.match(match, at)) return true;
+    match.groups[0] = -1;
+    return false;
+  }
+
+  @Override
+  public boolean find(Match match, int from) {
+    if (first == null) return Matcher.super.find(match, from);
+    var input = match.input;
+    for (var at = from; at < match.length && !match.exhausted(); at++)
+      if (first.get(input.charAt(at)) && match(match, at)) return true;
+    return false;
+  }
+
+  private int count(int node) {
+    return switch (arena.kind(node)) {
+    case OR, AND -> {
+      var result = 0;
+      for (var i = 0; i < arena.size(node); i++)
+        result += count(arena.operand(node, i));
+      yield result;
+    }
+    case REPEAT, INFINITE_REPEAT, LOOKUP -> count(arena.operand(node, 0));
+    case CAPTURE -> 1 + count(arena.operand(node, 0));
+    default -> 0;
+    };
+  }
+
+  private Node compile(int pattern, int group, Node next) {
+    return switch (arena.kind(pattern)) {
+    case ONE -> {
+      var set = arena.string(pattern, 0);
+      yield set.length() == 1
+        ? new Single(set.charAt(0), next)
+        : new Set(Characters.set(arena, pattern), next);
+    }
+    case RANGE -> new Span((char) arena.operand(pattern, 0),
+      (char) arena.operand(pattern, 1), next);
+    case NOT_ONE, NOT_RANGE, ANY ->
+      new Set(Characters.set(arena, pattern), next);
+    case ALL -> {
+      var characters = arena.string(pattern, 0);
+      yield characters.length() == 1
+        ? new Single(characters.charAt(0), next)
+        : new Literal(characters, next);
+    }
+    case START -> new Start(next);
+    case END -> new End(next);
+    case OR -> compileOr(pattern, group, next);
+    case AND -> {
+      var offsets = new int[arena.size(pattern)];
+      for (var i = 1; i < offsets.length; i++)
+        offsets[i] = offsets[i - 1] + count(arena.operand(pattern, i - 1));
+      var result = next;
+      for (var i = offsets.length - 1; i >= 0; i--)
+        result = compile(arena.operand(pattern, i), group + offsets[i], result);
+      yield result;
+    }
+    case REPEAT -> compileRepeat(arena.operand(pattern, 0),
+      arena.operand(pattern, 1), arena.operand(pattern, 2), group, next);
+    case INFINITE_REPEAT -> compileRepeat(arena.operand(pattern, 0),
+      arena.operand(pattern, 1), Integer.MAX_VALUE, group, next);
+    case LOOKUP -> compileLookup(pattern, group, next);
+    case CAPTURE -> new Open(group, compile(arena.operand(pattern, 0),
+      group + 1, new Close(group, next)));
+    default -> throw new RuntimeException(
+      "Node [%d] of kind [%d] is not a pattern!".formatted(pattern,
+        arena.kind(pattern)));
+    };
+  }
+
+  private Node compileOr(int or, int group, Node next) {
+    var set = Characters.set(arena, or);
+    if (set != null && count(or) == 0) return new Set(set, next);
+    var alternatives = new Node[arena.size(or)];
+    for (var i = 0; i < alternatives.length; i++) {
+      var alternative = arena.operand(or, i);
+      alternatives[i] = compile(alternative, group, next);
+      group          += count(alternative);
+    }
+    return new Branch(alternatives);
+  }
+
+  private Node compileRepeat(int repeated, int minimum, int maximum,
+    int group, Node next) {
+    var set = Characters.set(arena, repeated);
+    if (set != null && count(repeated) == 0)
+      return new SetLoop(set, minimum, maximum, next);
+    if (minimum == 0 && maximum == 1)
+      return new Branch(new Node[] { compile(repeated, group, next), next });
+    if (minimum == maximum && minimum <= UNROLLED) {
+      var result = next;
+      for (var i = 0; i < minimum; i++)
+        result = compile(repeated, group, result);
+      return result;
+    }
+    var loop = new Loop(minimum, maximum, loops++, group, count(repeated));
+    loop.repeated = compile(repeated, group, new Collect(loop.index));
+    loop.next     = next;
+    return loop;
+  }
+
+  private Node compileLookup(int lookup, int group, Node next) {
+    var looked   = arena.operand(lookup, 0);
+    var flags    = arena.operand(lookup, 1);
+    var wanted   = (flags & LOOKUP_WANTED) != 0;
+    var captures = count(looked) != 0;
+    if ((flags & LOOKUP_BEHIND) == 0)
+      return new Look(new Node[] { compile(looked, group, new Succeed()) },
+        new int[1], wanted, captures, next);
+    var alternatives = arena.kind(looked) == OR
+      ? new int[arena.size(looked)]
+      : new int[] { looked };
+    var lengths      = new int[alternatives.length];
+    for (var i = 0; i < alternatives.length; i++) {
+      if (arena.kind(looked) == OR) alternatives[i] = arena.operand(looked, i);
+      var steps = new ArrayList<BitSet>();
+      if (!Characters.fixed(arena, alternatives[i], steps)) {
+        var behind = new Behind(Characters.width(arena, looked), targets++,
+          wanted, captures);
+        behind.looked = compile(looked, group, new Reach(behind.index));
+        behind.next   = next;
+        return behind;
+      }
+      lengths[i] = steps.size();
+    }
+    var nodes = new Node[alternatives.length];
+    for (var i = 0; i < alternatives.length; i++) {
+      nodes[i] = compile(alternatives[i], group, new Succeed());
+      group   += count(alternatives[i]);
+    }
+    return new Look(nodes, lengths, wanted, captures, next);
+  }
+}
@@ -0,0 +1,262 @@
+package tinam;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import tinam.Tokenizer.Tokens;
+
+public final class Corpus {
+  public static void main(String[] arguments) throws IOException {
+    var threads     = Runtime.getRuntime().availableProcessors();
+    var steps       = Long.MAX_VALUE;
+    var nanoseconds = Long.MAX_VALUE;
+    var positional  = new ArrayList<String>();
+    var grammars    = new ArrayList<Path>();
+    for (var i = 0; i < arguments.length; i++) switch (arguments[i]) {
+    case "--threads" -> threads = Integer.parseInt(arguments[++i]);
+    case "--grammar" -> grammars.add(Path.of(arguments[++i]));
+    case "--steps" -> steps = Long.parseLong(arguments[++i]);
+    case "--line-time" ->
+      nanoseconds = Long.parseLong(arguments[++i]) * 1_000_000;
+    default -> positional.add(arguments[i]);
+    }
+    if (positional.size() != 2) throw new RuntimeException(
+      "Expected a grammar extension and a directory, not `%s`!"
+        .formatted(positional));
+    var extension = positional.get(0);
+    var grammar   = Provider.grammars(grammars).get(extension);
+    if (grammar == null) throw new RuntimeException(
+      "There is no grammar for `%s`!".formatted(extension));
+
+    var start     = System.nanoTime();
+    var tokenizer = Tokenizer.of(grammar, Budget.of(steps, nanoseconds));
+    var files     = files(Path.of(positional.get(1)), extension);
+    var summary   = tokenize(tokenizer, files, threads);
+    var elapsed   = System.nanoTime() - start;
+    System.out.printf(
+      "Tokenized %d files, %d lines, %d bytes into %d tokens in %.3f s "
+        + "(%.1f MB/s) on %d threads.%n",
+      summary.files(), summary.lines(), summary.bytes(), summary.tokens(),
+      elapsed / 1e9, summary.bytes() / (elapsed / 1e3), threads);
+    if (summary.exhausted() != 0) System.out.printf(
+      "%d lines exceeded the budget.%n", summary.exhausted());
+  }
+
+  public record Summary(long files, long lines, long bytes, long tokens,
+    long exhausted) {
+    Summary plus(Summary other) {
+      return new Summary(files + other.files, lines + other.lines,
+        bytes + other.bytes, tokens + other.tokens,
+        exhausted + other.exhausted);
+    }
+  }
+
+  public static List<Path> files(Path root, String extension)
+    throws IOException {
+    var suffix = "." + extension;
+    var result = new ArrayList<Path>();
+    try (var walk = Files.walk(root)) {
+      var iterator = walk.iterator();
+      while (iterator.hasNext()) {
+        var path = iterator.next();
+        var name = path.getFileName();
+        if (name != null && name.toString().endsWith(suffix)
+          && Files.isRegularFile(path))
+          result.add(path);
+      }
+    }
+    return result;
+  }
+
+  public static Summary tokenize(Tokenizer tokenizer, List<Path> files,
+    int threads) {
+    var next      = new AtomicInteger();
+    var summaries = new Summary[threads];
+    var failures  = new ArrayList<Throwable>();
+    var workers   = new Thread[threads];
+    for (var i = 0; i < threads; i++) {
+      var index = i;
+      workers[i] = Thread.ofPlatform().name("corpus-" + i)
+        .uncaughtExceptionHandler((thread, exception) -> {
+          synchronized (failures) {
+            failures.add(exception);
+          }
+        }).start(() -> {
+          var corpus  = new Corpus(tokenizer);
+          var counter = new Counter();
+          for (var file = next.getAndIncrement(); file < files.size();
+            file = next.getAndIncrement())
+            corpus.tokenize(files.get(file), counter);
+          summaries[index] = new Summary(corpus.files, corpus.lines,
+            corpus.bytes, counter.tokens, counter.exhausted);
+        });
+    }
+    var result = new Summary(0, 0, 0, 0, 0);
+    for (var i = 0; i < threads; i++) {
+      try {
+        workers[i].join();
+      } catch (InterruptedException exception) {
+        throw new RuntimeException(exception);
+      }
+      if (summaries[i] != null) result = result.plus(summaries[i]);
+    }
+    if (!failures.isEmpty()) {
+      var exception = new RuntimeException("Could not tokenize the corpus!");
+      for (var failure : failures) exception.addSuppressed(failure);
+      throw exception;
+    }
+    return result;
+  }
+
+  private static final int CHUNK  = 1 << 26;
+  private static final int BUFFER = 1 << 16;
+
+  private static final class Counter implements Tokens {
+    long tokens;
+    long exhausted;
+
+    @Override
+    public void token(int start, int end, List<String> scopes) { tokens++; }
+
+    @Override
+    public void exhausted(Rule rule, int at) { exhausted++; }
+  }
+
+  private static final class Line implements CharSequence {
+    private char[] characters;
+    private int    offset;
+    private int    length;
+
+    void set(char[] characters, int offset, int length) {
+      this.characters = characters;
+      this.offset     = offset;
+      this.length     = length;
+    }
+
+    @Override
+    public int length() { return length; }
+
+    @Override
+    public char charAt(int index) {
+      if (index < 0 || index >= length) throw new IndexOutOfBoundsException(
+        "Index [%d] is out of [%d] characters!".formatted(index, length));
+      return characters[offset + index];
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+      return toString().substring(start, end);
+    }
+
+    @Override
+    public String toString() {
+      return new String(characters, offset, length);
+    }
+  }
+
+  private final Tokenizer.Session session;
+  private final Tokenizer.State   initial;
+  private final CharsetDecoder    decoder;
+  private final Line              line;
+  private CharBuffer              buffer;
+
+  private long files;
+  private long lines;
+  private long bytes;
+
+  public Corpus(Tokenizer tokenizer) {
+    session = tokenizer.session();
+    initial = tokenizer.initial();
+    decoder = StandardCharsets.UTF_8.newDecoder()
+      .onMalformedInput(CodingErrorAction.REPLACE)
+      .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    line    = new Line();
+    buffer  = CharBuffer.allocate(BUFFER);
+  }
+
+  public Tokenizer.State tokenize(Path file, Tokens tokens) {
+    try (var channel = FileChannel.open(file)) {
+      var size     = channel.size();
+      var state    = initial;
+      var position = 0L;
+      decoder.reset();
+      buffer = buffer.capacity() == BUFFER
+        ? buffer.clear()
+        : CharBuffer.allocate(BUFFER);
+      while (true) {
+        var window = Math.min(CHUNK, size - position);
+        var mapped = channel.map(FileChannel.MapMode.READ_ONLY, position,
+          window);
+        var last   = position + window == size;
+        while (true) {
+          var result = decoder.decode(mapped, buffer, last);
+          if (result.isError()) result.throwException();
+          if (!result.isOverflow()) break;
+          state = drain(state, false, tokens);
+        }
+        position += mapped.position();
+        if (last) break;
+      }
+      while (decoder.flush(buffer).isOverflow())
+        state = drain(state, false, tokens);
+      state = drain(state, true, tokens);
+      files++;
+      bytes += size;
+      return state;
+    } catch (IOException exception) {
+      throw new UncheckedIOException(
+        "Could not tokenize `%s`!".formatted(file), exception);
+    }
+  }
+
+  private Tokenizer.State drain(Tokenizer.State state, boolean last,
+    Tokens tokens) {
+    buffer.flip();
+    state = lines(state, last, tokens);
+    buffer.compact();
+    if (!buffer.hasRemaining()) {
+      var grown = CharBuffer.allocate(buffer.capacity() * 2);
+      buffer.flip();
+      grown.put(buffer);
+      buffer = grown;
+    }
+    return state;
+  }
+
+  private Tokenizer.State lines(Tokenizer.State state, boolean last,
+    Tokens tokens) {
+    var characters = buffer.array();
+    var offset     = buffer.arrayOffset();
+    var start      = buffer.position();
+    var limit      = buffer.limit();
+    for (var at = start; at < limit; at++) {
+      if (characters[offset + at] != '\n') continue;
+      state = line(state, characters, offset + start, at - start, tokens);
+      start = at + 1;
+    }
+    if (last && start < limit) {
+      state = line(state, characters, offset + start, limit - start, tokens);
+      start = limit;
+    }
+    buffer.position(start);
+    return state;
+  }
+
+  private Tokenizer.State line(Tokenizer.State state, char[] characters,
+    int offset, int length, Tokens tokens) {
+    if (length != 0 && characters[offset + length - 1] == '\r') length--;
+    line.set(characters, offset, length);
+    lines++;
+    return session.tokenize(line, state, tokens);
+  }
+}
@@ -0,0 +1,168 @@
+package tinam;
+
+import static tinam.Encoder.*;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Optional;
+
+import tinam.Rule.*;
+import tinam.Pattern.*;
+
+public final class Decoder {
+  public static Grammar load(Path file) {
+    try (var channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      return decode(channel.map(FileChannel.MapMode.READ_ONLY, 0,
+        channel.size()));
+    } catch (IOException exception) {
+      throw new RuntimeException(exception);
+    }
+  }
+
+  public static Grammar decode(ByteBuffer input) {
+    var decoder = new Decoder(input.duplicate());
+    try {
+      return decoder.decode();
+    } catch (BufferUnderflowException exception) {
+      throw new RuntimeException("Grammar is truncated at [%d]!"
+        .formatted(decoder.input.position()));
+    }
+  }
+
+  private final ByteBuffer input;
+
+  private String[] strings;
+  private Object[] nodes;
+
+  private Decoder(ByteBuffer input) { this.input = input; }
+
+  private Grammar decode() {
+    var magic = input.getInt();
+    if (magic != MAGIC) throw new RuntimeException(
+      "Magic number [%08x] is not a tinam grammar!".formatted(magic));
+    var version = input.getInt();
+    if (version != VERSION) throw new RuntimeException(
+      "Grammar version [%d] is not supported!".formatted(version));
+
+    strings = new String[count("String", 4)];
+    for (var i = 0; i < strings.length; i++) {
+      var length = count("String byte", 1);
+      strings[i] = StandardCharsets.UTF_8
+        .decode(input.slice(input.position(), length)).toString();
+      input.position(input.position() + length);
+    }
+
+    nodes = new Object[count("Node", 1)];
+    for (var i = 0; i < nodes.length; i++) nodes[i] = node();
+
+    var name       = string();
+    var extension  = string();
+    var topLevel   = nodeList(Rule.class);
+    var repository = new LinkedHashMap<Rule, String>();
+    var count      = count("Repository entry", 8);
+    for (var i = 0; i < count; i++)
+      repository.put(node(Rule.class), string());
+    if (input.hasRemaining()) throw new RuntimeException(
+      "Grammar has [%d] bytes after its end at [%d]!"
+        .formatted(input.remaining(), input.position()));
+    return Grammar.of(name, extension, topLevel,
+      Collections.unmodifiableMap(repository));
+  }
+
+  private Object node() {
+    var position = input.position();
+    var kind     = input.get();
+    return switch (kind) {
+    case ONE -> Pattern.one(string());
+    case NOT_ONE -> Pattern.notOne(string());
+    case RANGE -> Pattern.range(input.getChar(), input.getChar());
+    case NOT_RANGE -> Pattern.notRange(input.getChar(), input.getChar());
+    case ANY -> Pattern.ANY;
+    case ALL -> Pattern.all(string());
+    case START -> Pattern.START;
+    case END -> Pattern.END;
+    case OR -> Pattern.or(nodeList(Pattern.class));
+    case AND -> Pattern.and(nodeList(Pattern.class));
+    case REPEAT ->
+      Pattern.repeat(node(Pattern.class), input.getInt(), input.getInt());
+    case INFINITE_REPEAT ->
+      Pattern.givenOrMore(node(Pattern.class), input.getInt());
+    case LOOKUP -> {
+      var looked = node(Pattern.class);
+      var flags  = input.get();
+      if ((flags & ~(LOOKUP_WANTED | LOOKUP_BEHIND)) != 0)
+        throw new RuntimeException("Lookup flags [%d] at [%d] are unknown!"
+          .formatted(flags, input.position() - 1));
+      yield new Lookup(looked, (flags & LOOKUP_WANTED) != 0,
+        (flags & LOOKUP_BEHIND) != 0);
+    }
+    case CAPTURE -> Pattern.capture(node(Pattern.class), node(Rule.class));
+    case UNCONDITIONAL -> Rule.unconditional(data());
+    case CONDITIONAL -> Rule.conditional(data(), node(Pattern.class));
+    case DELIMITATED -> Rule.delimitated(data(), node(Pattern.class),
+      node(Pattern.class));
+    default -> throw new RuntimeException(
+      "Node kind [%d] at [%d] is unknown!".formatted(kind, position));
+    };
+  }
+
+  private Data data() {
+    var position = input.position();
+    var scope    = input.getInt();
+    return new Data(
+      scope == -1 ? Optional.empty() : Optional.of(string(scope, position)),
+      nodeList(Rule.class));
+  }
+
+  private int count(String counted, int size) {
+    var position = input.position();
+    var count    = input.getInt();
+    if (count < 0 || count > input.remaining() / size)
+      throw new RuntimeException(
+        "%s count [%d] at [%d] does not fit in the remaining [%d] bytes!"
+          .formatted(counted, count, position, input.remaining()));
+    return count;
+  }
+
+  private String string() {
+    var position = input.position();
+    return string(input.getInt(), position);
+  }
+
+  private String string(int index, int position) {
+    if (index < 0 || index >= strings.length) throw new RuntimeException(
+      "String reference [%d] at [%d] is not in the pool of [%d]!"
+        .formatted(index, position, strings.length));
+    return strings[index];
+  }
+
+  private <T> T node(Class<T> type) {
+    var position = input.position();
+    var index    = input.getInt();
+    if (index < 0 || index >= nodes.length || nodes[index] == null)
+      throw new RuntimeException(
+        "Node reference [%d] at [%d] is not defined before use!"
+          .formatted(index, position));
+    if (!type.isInstance(nodes[index])) throw new RuntimeException(
+      "Node reference [%d] at [%d] is a `%s`, not a `%s`!".formatted(index,
+        position, nodes[index].getClass().getSimpleName(),
+        type.getSimpleName()));
+    return type.cast(nodes[index]);
+  }
+
+  private <T> List<T> nodeList(Class<T> type) {
+    var count = count("Node reference", 4);
+    var list  = new ArrayList<T>(count);
+    for (var i = 0; i < count; i++) list.add(node(type));
+    return Collections.unmodifiableList(list);
+  }
+}
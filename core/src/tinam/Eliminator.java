@@ -0,0 +1,314 @@
+package tinam;
+
+import static tinam.Characters.*;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import tinam.Rule.*;
+import tinam.Pattern.*;
+
+public final class Eliminator {
+  public sealed interface Shadow {
+    record Alternative(Or or, Pattern shadowed, Pattern by) implements Shadow {}
+    record Entry(Rule shadowed, Rule by) implements Shadow {}
+  }
+
+  public static List<Shadow> analyze(Grammar analyzed) {
+    return analyze(analyzed, Listener.NONE);
+  }
+
+  public static List<Shadow> analyze(Grammar analyzed, Listener listener) {
+    var start      = System.nanoTime();
+    var eliminator = new Eliminator(analyzed);
+    eliminator.eliminate();
+    listener.phase(Listener.Phase.ANALYSIS, System.nanoTime() - start);
+    for (var shadow : eliminator.shadows) listener.shadow(shadow);
+    return Collections.unmodifiableList(eliminator.shadows);
+  }
+
+  public static Grammar eliminate(Grammar eliminated) {
+    return eliminate(eliminated, Listener.NONE);
+  }
+
+  public static Grammar eliminate(Grammar eliminated, Listener listener) {
+    var start      = System.nanoTime();
+    var eliminator = new Eliminator(eliminated);
+    var result     = eliminator.eliminate();
+    listener.phase(Listener.Phase.ANALYSIS, System.nanoTime() - start);
+    for (var shadow : eliminator.shadows) listener.shadow(shadow);
+    return result;
+  }
+
+  private final Grammar                     eliminated;
+  private final Map<Rule, Rule>             rules;
+  private final Set<Or>                     reportedTail;
+  private final Set<Or>                     reportedInner;
+  private final List<Shadow>                shadows;
+  private final Map<Pattern, List<BitSet>> prefixes;
+  private final Map<Pattern, List<BitSet>> sufficients;
+  private final Map<Pattern, List<BitSet>> fixeds;
+
+  private Eliminator(Grammar eliminated) {
+    this.eliminated = eliminated;
+    rules           = new IdentityHashMap<>();
+    reportedTail    = Collections.newSetFromMap(new IdentityHashMap<>());
+    reportedInner   = Collections.newSetFromMap(new IdentityHashMap<>());
+    shadows         = new ArrayList<>();
+    prefixes        = new IdentityHashMap<>();
+    sufficients     = new IdentityHashMap<>();
+    fixeds          = new IdentityHashMap<>();
+  }
+
+  private Grammar eliminate() {
+    var topLevel   = entries(eliminated.topLevel());
+    var repository = new LinkedHashMap<Rule, String>();
+    for (var entry : eliminated.repository().entrySet())
+      repository.put(rule(entry.getKey()), entry.getValue());
+    return Grammar.of(eliminated.name(), eliminated.extension(), topLevel,
+      Collections.unmodifiableMap(repository));
+  }
+
+  private Rule rule(Rule rule) {
+    var result = rules.get(rule);
+    if (result != null) return result;
+    var inner = entries(rule.data().inner());
+    var data  = inner == rule.data().inner()
+      ? rule.data()
+      : new Data(rule.data().scope(), inner);
+    result = switch (rule) {
+    case Unconditional unconditional ->
+      data == rule.data() ? rule : new Unconditional(data);
+    case Conditional conditional -> {
+      var condition = pattern(conditional.condition(), true);
+      yield data == rule.data() && condition == conditional.condition()
+        ? rule
+        : new Conditional(data, condition);
+    }
+    case Delimitated delimitated -> {
+      var initializer = pattern(delimitated.initializer(), true);
+      var terminator  = pattern(delimitated.terminator(), true);
+      yield data == rule.data() && initializer == delimitated.initializer()
+        && terminator == delimitated.terminator()
+          ? rule
+          : new Delimitated(data, initializer, terminator);
+    }
+    };
+    rules.put(rule, result);
+    return result;
+  }
+
+  private List<Rule> entries(List<Rule> entries) {
+    return entries(entries, new ArrayList<>());
+  }
+
+  private List<Rule> entries(List<Rule> entries, List<Rule> earlier) {
+    var result = new ArrayList<Rule>();
+    for (var entry : entries) {
+      if (inlined(entry)) {
+        var inner = entries(entry.data().inner(), earlier);
+        if (inner == entry.data().inner()) result.add(entry);
+        else if (!inner.isEmpty())
+          result.add(new Unconditional(new Data(entry.data().scope(), inner)));
+        continue;
+      }
+      var by = shadowing(earlier, entry);
+      if (by != null) shadows.add(new Shadow.Entry(entry, by));
+      else result.add(rule(entry));
+      flatten(entry, earlier);
+    }
+    return same(result, entries)
+      ? entries
+      : Collections.unmodifiableList(result);
+  }
+
+  private boolean inlined(Rule rule) {
+    return rule.data().scope().isEmpty() && rule instanceof Unconditional
+      && !eliminated.repository().containsKey(rule);
+  }
+
+  private void flatten(Rule rule, List<Rule> flattened) {
+    if (rule.data().scope().isEmpty() && rule instanceof Unconditional) {
+      for (var inner : rule.data().inner()) flatten(inner, flattened);
+    } else {
+      flattened.add(rule);
+    }
+  }
+
+  private Rule shadowing(List<Rule> earlier, Rule rule) {
+    var pattern = entryPattern(rule);
+    if (pattern == null) return null;
+    for (var candidate : earlier) {
+      var candidatePattern = entryPattern(candidate);
+      if (candidatePattern != null && covers(candidatePattern, pattern))
+        return candidate;
+    }
+    return null;
+  }
+
+  private static Pattern entryPattern(Rule rule) {
+    return switch (rule) {
+    case Unconditional unconditional -> null;
+    case Conditional conditional -> conditional.condition();
+    case Delimitated delimitated -> delimitated.initializer();
+    };
+  }
+
+  private Pattern pattern(Pattern pattern, boolean tail) {
+    return switch (pattern) {
+    case Or or -> patternOr(or, tail);
+    case And and -> {
+      var sequence = new ArrayList<Pattern>(and.sequence().size());
+      var last     = and.sequence().size() - 1;
+      for (var i = 0; i <= last; i++)
+        sequence.add(pattern(and.sequence().get(i), tail && i == last));
+      yield same(sequence, and.sequence())
+        ? and
+        : new And(Collections.unmodifiableList(sequence));
+    }
+    case Repeat repeat -> {
+      var repeated = pattern(repeat.repeated(), false);
+      yield repeated == repeat.repeated()
+        ? repeat
+        : new Repeat(repeated, repeat.minimum(), repeat.maximum());
+    }
+    case InfiniteRepeat infiniteRepeat -> {
+      var repeated = pattern(infiniteRepeat.repeated(), false);
+      yield repeated == infiniteRepeat.repeated()
+        ? infiniteRepeat
+        : new InfiniteRepeat(repeated, infiniteRepeat.minimum());
+    }
+    case Lookup lookup -> {
+      var looked = pattern(lookup.looked(), !lookup.behind());
+      yield looked == lookup.looked()
+        ? lookup
+        : new Lookup(looked, lookup.wanted(), lookup.behind());
+    }
+    case Capture capture -> {
+      var captured = pattern(capture.pattern(), tail);
+      var rule     = rule(capture.rule());
+      yield captured == capture.pattern() && rule == capture.rule()
+        ? capture
+        : new Capture(captured, rule);
+    }
+    default -> pattern;
+    };
+  }
+
+  private Pattern patternOr(Or or, boolean tail) {
+    var alternatives = new ArrayList<Pattern>();
+    var earlier      = new ArrayList<Pattern>();
+    var report       = (tail ? reportedTail : reportedInner).add(or);
+    for (var alternative : or.alternatives()) {
+      Pattern by = null;
+      for (var i = 0; by == null && i < earlier.size(); i++) {
+        var candidate = earlier.get(i);
+        if (tail
+          ? covers(candidate, alternative)
+          : coversExactly(candidate, alternative))
+          by = candidate;
+      }
+      earlier.add(alternative);
+      if (by == null) {
+        alternatives.add(pattern(alternative, tail));
+      } else if (report) {
+        shadows.add(new Shadow.Alternative(or, alternative, by));
+      }
+    }
+    if (alternatives.size() == 1) return alternatives.get(0);
+    return same(alternatives, or.alternatives())
+      ? or
+      : new Or(Collections.unmodifiableList(alternatives));
+  }
+
+  private static boolean same(List<?> result, List<?> original) {
+    if (result.size() != original.size()) return false;
+    for (var i = 0; i < result.size(); i++)
+      if (result.get(i) != original.get(i)) return false;
+    return true;
+  }
+
+  private boolean covers(Pattern covering, Pattern covered) {
+    if (covering.equals(covered)) return true;
+    if (covering instanceof Or coveringAsOr) {
+      for (var alternative : coveringAsOr.alternatives())
+        if (covers(alternative, covered)) return true;
+      return false;
+    }
+    var steps = sufficientSteps(covering);
+    if (steps == null) return false;
+    var prefix = prefixSteps(covered);
+    if (steps.size() > prefix.size()) return false;
+    for (var i = 0; i < steps.size(); i++)
+      if (!setContains(steps.get(i), prefix.get(i))) return false;
+    return true;
+  }
+
+  private boolean coversExactly(Pattern covering, Pattern covered) {
+    if (covering.equals(covered)) return true;
+    var steps        = fixedSteps(covering);
+    var coveredSteps = fixedSteps(covered);
+    if (steps == null || coveredSteps == null
+      || steps.size() != coveredSteps.size())
+      return false;
+    for (var i = 0; i < steps.size(); i++)
+      if (!setContains(steps.get(i), coveredSteps.get(i))) return false;
+    return true;
+  }
+
+  private List<BitSet> prefixSteps(Pattern pattern) {
+    var result = prefixes.get(pattern);
+    if (result != null) return result;
+    result = new ArrayList<>();
+    prefix(pattern, result);
+    prefixes.put(pattern, result);
+    return result;
+  }
+
+  private List<BitSet> sufficientSteps(Pattern pattern) {
+    if (sufficients.containsKey(pattern)) return sufficients.get(pattern);
+    var steps  = new ArrayList<BitSet>();
+    var result = sufficient(pattern, steps) ? steps : null;
+    sufficients.put(pattern, result);
+    return result;
+  }
+
+  private List<BitSet> fixedSteps(Pattern pattern) {
+    if (fixeds.containsKey(pattern)) return fixeds.get(pattern);
+    var result = fixed(pattern);
+    fixeds.put(pattern, result);
+    return result;
+  }
+
+  private static boolean sufficient(Pattern pattern, List<BitSet> steps) {
+    switch (pattern) {
+    case Repeat repeat -> {
+      for (var i = 0; i < repeat.minimum(); i++)
+        if (!sufficient(repeat.repeated(), steps)) return false;
+      return true;
+    }
+    case InfiniteRepeat infiniteRepeat -> {
+      for (var i = 0; i < infiniteRepeat.minimum(); i++)
+        if (!sufficient(infiniteRepeat.repeated(), steps)) return false;
+      return true;
+    }
+    case And and -> {
+      for (var sequent : and.sequence())
+        if (!sufficient(sequent, steps)) return false;
+      return true;
+    }
+    case Capture capture -> {
+      return sufficient(capture.pattern(), steps);
+    }
+    default -> {
+      return fixed(pattern, steps);
+    }
+    }
+  }
+}
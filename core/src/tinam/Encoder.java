@@ -0,0 +1,242 @@
+package tinam;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import tinam.Rule.*;
+import tinam.Pattern.*;
+
+public final class Encoder {
+  static final int MAGIC   = 0x544E4D42;
+  static final int VERSION = 1;
+
+  static final byte ONE             = 0;
+  static final byte NOT_ONE         = 1;
+  static final byte RANGE           = 2;
+  static final byte NOT_RANGE       = 3;
+  static final byte ANY             = 4;
+  static final byte ALL             = 5;
+  static final byte START           = 6;
+  static final byte END             = 7;
+  static final byte OR              = 8;
+  static final byte AND             = 9;
+  static final byte REPEAT          = 10;
+  static final byte INFINITE_REPEAT = 11;
+  static final byte LOOKUP          = 12;
+  static final byte CAPTURE         = 13;
+  static final byte UNCONDITIONAL   = 14;
+  static final byte CONDITIONAL     = 15;
+  static final byte DELIMITATED     = 16;
+
+  static final byte LOOKUP_WANTED = 1;
+  static final byte LOOKUP_BEHIND = 2;
+
+  public static void encode(OutputStream output, Grammar encoded) {
+    new Encoder(encoded).encode(new DataOutputStream(output));
+  }
+
+  private final Grammar encoded;
+
+  private final Map<String, Integer> strings;
+  private final List<String>         stringPool;
+  private final Map<Object, Integer> nodes;
+  private final List<Object>         nodePool;
+
+  private Encoder(Grammar encoded) {
+    this.encoded = encoded;
+    strings      = new HashMap<>();
+    stringPool   = new ArrayList<>();
+    nodes        = new HashMap<>();
+    nodePool     = new ArrayList<>();
+  }
+
+  private void encode(DataOutputStream output) {
+    var name      = intern(encoded.name());
+    var extension = intern(encoded.extension());
+    var topLevel  = new int[encoded.topLevel().size()];
+    for (var i = 0; i < topLevel.length; i++)
+      topLevel[i] = collect(encoded.topLevel().get(i));
+    var repository = new int[encoded.repository().size() * 2];
+    var index      = 0;
+    for (var entry : encoded.repository().entrySet()) {
+      repository[index++] = collect(entry.getKey());
+      repository[index++] = intern(entry.getValue());
+    }
+
+    try {
+      output.writeInt(MAGIC);
+      output.writeInt(VERSION);
+
+      output.writeInt(stringPool.size());
+      for (var string : stringPool) {
+        var bytes = string.getBytes(StandardCharsets.UTF_8);
+        output.writeInt(bytes.length);
+        output.write(bytes);
+      }
+
+      output.writeInt(nodePool.size());
+      for (var node : nodePool) node(output, node);
+
+      output.writeInt(name);
+      output.writeInt(extension);
+      output.writeInt(topLevel.length);
+      for (var rule : topLevel) output.writeInt(rule);
+      output.writeInt(repository.length / 2);
+      for (var value : repository) output.writeInt(value);
+
+      output.flush();
+    } catch (IOException exception) {
+      throw new RuntimeException(exception);
+    }
+  }
+
+  private int intern(String string) {
+    var index = strings.get(string);
+    if (index != null) return index;
+    index = stringPool.size();
+    stringPool.add(string);
+    strings.put(string, index);
+    return index;
+  }
+
+  private int collect(Object node) {
+    var index = nodes.get(node);
+    if (index != null) return index;
+    switch (node) {
+    case Pattern pattern -> collectPattern(pattern);
+    case Rule rule -> collectRule(rule);
+    default -> throw new RuntimeException("Node type `%s` is not encodable!"
+      .formatted(node.getClass().getSimpleName()));
+    }
+    index = nodePool.size();
+    nodePool.add(node);
+    nodes.put(node, index);
+    return index;
+  }
+
+  private void collectPattern(Pattern pattern) {
+    switch (pattern) {
+    case One one -> intern(one.set());
+    case NotOne notOne -> intern(notOne.set());
+    case All all -> intern(all.characters());
+    case Or or -> or.alternatives().forEach(this::collect);
+    case And and -> and.sequence().forEach(this::collect);
+    case Repeat repeat -> collect(repeat.repeated());
+    case InfiniteRepeat infiniteRepeat -> collect(infiniteRepeat.repeated());
+    case Lookup lookup -> collect(lookup.looked());
+    case Capture capture -> {
+      collect(capture.pattern());
+      collect(capture.rule());
+    }
+    default -> {}
+    }
+  }
+
+  private void collectRule(Rule rule) {
+    rule.data().scope().ifPresent(this::intern);
+    rule.data().inner().forEach(this::collect);
+    switch (rule) {
+    case Unconditional unconditional -> {}
+    case Conditional conditional -> collect(conditional.condition());
+    case Delimitated delimitated -> {
+      collect(delimitated.initializer());
+      collect(delimitated.terminator());
+    }
+    }
+  }
+
+  private void node(DataOutputStream output, Object node) throws IOException {
+    switch (node) {
+    case One one -> {
+      output.writeByte(ONE);
+      output.writeInt(strings.get(one.set()));
+    }
+    case NotOne notOne -> {
+      output.writeByte(NOT_ONE);
+      output.writeInt(strings.get(notOne.set()));
+    }
+    case Range range -> {
+      output.writeByte(RANGE);
+      output.writeChar(range.first());
+      output.writeChar(range.last());
+    }
+    case NotRange notRange -> {
+      output.writeByte(NOT_RANGE);
+      output.writeChar(notRange.first());
+      output.writeChar(notRange.last());
+    }
+    case Any any -> output.writeByte(ANY);
+    case All all -> {
+      output.writeByte(ALL);
+      output.writeInt(strings.get(all.characters()));
+    }
+    case Start start -> output.writeByte(START);
+    case End end -> output.writeByte(END);
+    case Or or -> {
+      output.writeByte(OR);
+      nodeList(output, or.alternatives());
+    }
+    case And and -> {
+      output.writeByte(AND);
+      nodeList(output, and.sequence());
+    }
+    case Repeat repeat -> {
+      output.writeByte(REPEAT);
+      output.writeInt(nodes.get(repeat.repeated()));
+      output.writeInt(repeat.minimum());
+      output.writeInt(repeat.maximum());
+    }
+    case InfiniteRepeat infiniteRepeat -> {
+      output.writeByte(INFINITE_REPEAT);
+      output.writeInt(nodes.get(infiniteRepeat.repeated()));
+      output.writeInt(infiniteRepeat.minimum());
+    }
+    case Lookup lookup -> {
+      output.writeByte(LOOKUP);
+      output.writeInt(nodes.get(lookup.looked()));
+      output.writeByte((lookup.wanted() ? LOOKUP_WANTED : 0)
+        | (lookup.behind() ? LOOKUP_BEHIND : 0));
+    }
+    case Capture capture -> {
+      output.writeByte(CAPTURE);
+      output.writeInt(nodes.get(capture.pattern()));
+      output.writeInt(nodes.get(capture.rule()));
+    }
+    case Unconditional unconditional -> {
+      output.writeByte(UNCONDITIONAL);
+      nodeData(output, unconditional.data());
+    }
+    case Conditional conditional -> {
+      output.writeByte(CONDITIONAL);
+      nodeData(output, conditional.data());
+      output.writeInt(nodes.get(conditional.condition()));
+    }
+    case Delimitated delimitated -> {
+      output.writeByte(DELIMITATED);
+      nodeData(output, delimitated.data());
+      output.writeInt(nodes.get(delimitated.initializer()));
+      output.writeInt(nodes.get(delimitated.terminator()));
+    }
+    default -> throw new RuntimeException("Node type `%s` is not encodable!"
+      .formatted(node.getClass().getSimpleName()));
+    }
+  }
+
+  private void nodeData(DataOutputStream output, Data data)
+    throws IOException {
+    output.writeInt(data.scope().map(strings::get).orElse(-1));
+    nodeList(output, data.inner());
+  }
+
+  private void nodeList(DataOutputStream output, List<?> list)
+    throws IOException {
+    output.writeInt(list.size());
+    for (var element : list) output.writeInt(nodes.get(element));
+  }
+}
@@ -0,0 +1,125 @@
+package tinam;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+public final class Events implements Listener {
+  @Name("tinam.Phase")
+  @Label("Phase")
+  @Category("tinam")
+  @StackTrace(false)
+  static final class PhaseEvent extends Event {
+    @Label("Phase")
+    String phase;
+    @Label("Elapsed")
+    @Timespan
+    long   elapsed;
+  }
+
+  @Name("tinam.Rule")
+  @Label("Rule")
+  @Category("tinam")
+  @StackTrace(false)
+  static final class RuleEvent extends Event {
+    @Label("Name")
+    String name;
+    @Label("Scope")
+    String scope;
+    @Label("Emitted Characters")
+    long   emitted;
+  }
+
+  @Name("tinam.Pattern")
+  @Label("Pattern")
+  @Category("tinam")
+  @StackTrace(false)
+  static final class PatternEvent extends Event {
+    @Label("Entry")
+    String entry;
+    @Label("Scope")
+    String scope;
+    @Label("Key")
+    String key;
+    @Label("Length in Characters")
+    long   length;
+    @Label("Depth")
+    int    depth;
+    @Label("Captures")
+    int    captures;
+  }
+
+  @Name("tinam.Include")
+  @Label("Include")
+  @Category("tinam")
+  @StackTrace(false)
+  static final class IncludeEvent extends Event {
+    @Label("Name")
+    String name;
+    @Label("Hits")
+    int    hits;
+  }
+
+  public static Events of() {
+    if (ModuleLayer.boot().findModule("jdk.jfr").isEmpty())
+      throw new RuntimeException(
+        "Events need the `jdk.jfr` module; add `--add-modules jdk.jfr`!");
+    return new Events();
+  }
+
+  private Events() {}
+
+  @Override
+  public void phase(Phase phase, long nanoseconds) {
+    var event = new PhaseEvent();
+    if (!event.shouldCommit()) return;
+    event.phase   = phase.name();
+    event.elapsed = nanoseconds;
+    event.commit();
+  }
+
+  @Override
+  public void topLevel(int index, Rule rule, long emitted) {
+    rule("#" + index, rule, emitted);
+  }
+
+  @Override
+  public void repository(String name, Rule rule, long emitted) {
+    rule(name, rule, emitted);
+  }
+
+  @Override
+  public void pattern(String entry, Rule rule, String name, Pattern pattern,
+    long length, int depth, int captures) {
+    var event = new PatternEvent();
+    if (!event.shouldCommit()) return;
+    event.entry    = entry;
+    event.scope    = rule.data().scope().orElse(null);
+    event.key      = name;
+    event.length   = length;
+    event.depth    = depth;
+    event.captures = captures;
+    event.commit();
+  }
+
+  @Override
+  public void include(String name, int hits) {
+    var event = new IncludeEvent();
+    if (!event.shouldCommit()) return;
+    event.name = name;
+    event.hits = hits;
+    event.commit();
+  }
+
+  private void rule(String name, Rule rule, long emitted) {
+    var event = new RuleEvent();
+    if (!event.shouldCommit()) return;
+    event.name    = name;
+    event.scope   = rule.data().scope().orElse(null);
+    event.emitted = emitted;
+    event.commit();
+  }
+}
@@ -0,0 +1,110 @@
+package tinam;
+
+import static tinam.Rule.*;
+import static tinam.Pattern.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.ServiceLoader;
+
+public final class Footprint {
+  public static void main(String[] arguments) {
+    var words     =
+      arguments.length == 0 ? 20000 : Integer.parseInt(arguments[0]);
+    var providers = new ArrayList<Provider>();
+    for (var provider : ServiceLoader.load(Provider.class))
+      providers.add(provider);
+    providers.add(() -> synthetic(words));
+
+    measure(() -> synthetic(64), false);
+    System.out.printf("%-10s %8s %11s %11s %11s %9s %9s%n", "grammar",
+      "nodes", "records B", "arena B", "estimate B", "build ms",
+      "convert ms");
+    for (var provider : providers) measure(provider, true);
+  }
+
+  private Footprint() {}
+
+  private static void measure(Provider provider, boolean reported) {
+    var before  = used();
+    var records = provider.grammar();
+    var middle  = used();
+    var start   = System.nanoTime();
+    var arena   = Arena.of(provider.grammar());
+    var build   = System.nanoTime() - start;
+    var after   = used();
+
+    start = System.nanoTime();
+    var converted = arena.grammar();
+    var convert   = System.nanoTime() - start;
+    if (!converted.equals(records)) throw new RuntimeException(
+      "Arena of `%s` does not convert back to the same grammar!"
+        .formatted(records.name()));
+    if (!write(records).equals(write(arena))) throw new RuntimeException(
+      "Arena of `%s` is not written like its records!"
+        .formatted(records.name()));
+
+    if (reported) System.out.printf("%-10s %8d %11d %11d %11d %9.3f %9.3f%n",
+      records.name(), arena.nodes(), middle - before, after - middle,
+      arena.bytes(), build / 1e6, convert / 1e6);
+  }
+
+  private static String write(Grammar grammar) {
+    var bytes = new ByteArrayOutputStream();
+    Writer.write(new OutputStreamWriter(bytes, StandardCharsets.UTF_8),
+      grammar);
+    return bytes.toString(StandardCharsets.UTF_8);
+  }
+
+  private static String write(Arena arena) {
+    var bytes = new ByteArrayOutputStream();
+    Writer.write(new OutputStreamWriter(bytes, StandardCharsets.UTF_8), arena,
+      Writer.Emission.DEFAULT, Listener.NONE);
+    return bytes.toString(StandardCharsets.UTF_8);
+  }
+
+  private static long used() {
+    var runtime = Runtime.getRuntime();
+    var result  = Long.MAX_VALUE;
+    for (var i = 0; i < 4; i++) {
+      System.gc();
+      result = Math.min(result, runtime.totalMemory() - runtime.freeMemory());
+    }
+    return result;
+  }
+
+  private static Grammar synthetic(int words) {
+    var random   = new Random(words);
+    var keywords = new ArrayList<Pattern>();
+    var types    = new ArrayList<Pattern>();
+    for (var i = 0; i < words; i++) {
+      keywords.add(all(word(random, 'a')));
+      types.add(all(word(random, 'A')));
+    }
+    var boundary = or(range('a', 'z'), range('A', 'Z'), range('0', '9'),
+      one("_"));
+    var keyword  = conditional(scoped("keyword.other"),
+      and(notAfter(boundary), or(keywords), notBefore(boundary)));
+    var type     = conditional(scoped("entity.name.type"),
+      and(notAfter(boundary), or(types), notBefore(boundary)));
+    var call     = conditional(scoped("meta.call"),
+      and(capture(or(keywords), unconditional(scoped("entity.name.function"))),
+        zeroOrMore(all(" ")), all("(")));
+    return Grammar.of("Synthetic", "syn", List.of(call, keyword, type),
+      Map.of());
+  }
+
+  private static String word(Random random, char first) {
+    var word   = new StringBuilder();
+    var length = 3 + random.nextInt(10);
+    word.append((char) (first + random.nextInt(26)));
+    for (var i = 1; i < length; i++)
+      word.append((char) ('a' + random.nextInt(26)));
+    return word.toString();
+  }
+}
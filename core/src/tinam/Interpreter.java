@@ -0,0 +1,166 @@
+package tinam;
+
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import tinam.Pattern.*;
+
+final class Interpreter implements Matcher {
+  interface Next {
+    boolean resume(int position);
+  }
+
+  private final Pattern               pattern;
+  private final Map<Pattern, Integer> captures;
+  private final Map<Pattern, Integer> widths;
+
+  Interpreter(Pattern pattern) {
+    this.pattern = pattern;
+    captures     = new IdentityHashMap<>();
+    widths       = new IdentityHashMap<>();
+    count(pattern);
+  }
+
+  @Override
+  public Match newMatch() { return new Match(count(pattern), 0, 0); }
+
+  @Override
+  public boolean match(Match match, int at) {
+    match.attempt();
+    return match(pattern, match, at, 1, end -> {
+      match.groups[0] = at;
+      match.groups[1] = end;
+      return true;
+    });
+  }
+
+  int count(Pattern pattern) {
+    var result = captures.get(pattern);
+    if (result != null) return result;
+    result = switch (pattern) {
+    case Or or -> count(or.alternatives());
+    case And and -> count(and.sequence());
+    case Repeat repeat -> count(repeat.repeated());
+    case InfiniteRepeat infiniteRepeat -> count(infiniteRepeat.repeated());
+    case Lookup lookup -> {
+      if (lookup.behind())
+        widths.put(lookup, Characters.width(lookup.looked()));
+      yield count(lookup.looked());
+    }
+    case Capture capture -> 1 + count(capture.pattern());
+    default -> 0;
+    };
+    captures.put(pattern, result);
+    return result;
+  }
+
+  private int count(List<Pattern> patterns) {
+    var result = 0;
+    for (var pattern : patterns) result += count(pattern);
+    return result;
+  }
+
+  boolean match(Pattern pattern, Match match, int at, int group, Next next) {
+    var input = match.input;
+    return switch (pattern) {
+    case One one -> at < match.length
+      && one.set().indexOf(input.charAt(at)) != -1 && next.resume(at + 1);
+    case NotOne notOne -> at < match.length
+      && notOne.set().indexOf(input.charAt(at)) == -1 && next.resume(at + 1);
+    case Range range -> at < match.length && input.charAt(at) >= range.first()
+      && input.charAt(at) <= range.last() && next.resume(at + 1);
+    case NotRange notRange -> at < match.length
+      && (input.charAt(at) < notRange.first()
+        || input.charAt(at) > notRange.last())
+      && next.resume(at + 1);
+    case Any any -> at < match.length && input.charAt(at) != '\n'
+      && next.resume(at + 1);
+    case All all -> matchAll(all.characters(), match, at)
+      && next.resume(at + all.characters().length());
+    case Start start -> at == 0 && next.resume(at);
+    case End end -> at == match.length && next.resume(at);
+    case Or or -> matchOr(or.alternatives(), match, at, group, next);
+    case And and -> matchAnd(and.sequence(), 0, match, at, group, next);
+    case Repeat repeat -> matchRepeat(repeat.repeated(), repeat.minimum(),
+      repeat.maximum(), match, at, group, next);
+    case InfiniteRepeat infiniteRepeat -> matchRepeat(
+      infiniteRepeat.repeated(), infiniteRepeat.minimum(), Integer.MAX_VALUE,
+      match, at, group, next);
+    case Lookup lookup -> matchLookup(lookup, match, at, group, next);
+    case Capture capture -> matchCapture(capture, match, at, group, next);
+    };
+  }
+
+  private boolean matchAll(String characters, Match match, int at) {
+    if (at + characters.length() > match.length) return false;
+    for (var i = 0; i < characters.length(); i++)
+      if (match.input.charAt(at + i) != characters.charAt(i)) return false;
+    return true;
+  }
+
+  private boolean matchOr(List<Pattern> alternatives, Match match, int at,
+    int group, Next next) {
+    for (var alternative : alternatives) {
+      if (!match.step()) return false;
+      if (match(alternative, match, at, group, next)) return true;
+      group += count(alternative);
+    }
+    return false;
+  }
+
+  private boolean matchAnd(List<Pattern> sequence, int index, Match match,
+    int at, int group, Next next) {
+    if (index == sequence.size()) return next.resume(at);
+    var sequent = sequence.get(index);
+    return match(sequent, match, at, group, end -> matchAnd(sequence,
+      index + 1, match, end, group + count(sequent), next));
+  }
+
+  private boolean matchRepeat(Pattern repeated, int minimum, int maximum,
+    Match match, int at, int group, Next next) {
+    var repetition = new Repetition();
+    return repetition.run(match, at, minimum, maximum, group, count(repeated),
+      new Repetition.Body() {
+        @Override
+        public boolean iterate(Match match, int at) {
+          return Interpreter.this.match(repeated, match, at, group,
+            end -> repetition.record(match, end));
+        }
+
+        @Override
+        public boolean exit(Match match, int at) { return next.resume(at); }
+      });
+  }
+
+  private boolean matchLookup(Lookup lookup, Match match, int at, int group,
+    Next next) {
+    var saved = match.groups.clone();
+    var found = false;
+    if (lookup.behind()) {
+      var width = widths.get(lookup);
+      var least = width == -1 || width > at ? 0 : at - width;
+      for (var start = at; !found && start >= least && match.step(); start--)
+        found = match(lookup.looked(), match, start, group, end -> end == at);
+    } else {
+      found = match(lookup.looked(), match, at, group, end -> true);
+    }
+    if (found == lookup.wanted() && next.resume(at)) return true;
+    System.arraycopy(saved, 0, match.groups, 0, saved.length);
+    return false;
+  }
+
+  private boolean matchCapture(Capture capture, Match match, int at,
+    int group, Next next) {
+    return match(capture.pattern(), match, at, group + 1, end -> {
+      var start    = match.groups[group * 2];
+      var previous = match.groups[group * 2 + 1];
+      match.groups[group * 2]     = at;
+      match.groups[group * 2 + 1] = end;
+      if (next.resume(end)) return true;
+      match.groups[group * 2]     = start;
+      match.groups[group * 2 + 1] = previous;
+      return false;
+    });
+  }
+}
@@ -0,0 +1,52 @@
+package tinam;
+
+import java.util.List;
+
+public interface Listener {
+  static enum Phase {
+    CONSTRUCTION, ANALYSIS, EMISSION, FLUSH;
+  }
+
+  Listener NONE = new Listener() {};
+
+  static Listener of(Listener... listeners) { return of(List.of(listeners)); }
+  static Listener of(List<Listener> listeners) {
+    return new Listener() {
+      @Override
+      public void phase(Phase phase, long nanoseconds) {
+        for (var listener : listeners) listener.phase(phase, nanoseconds);
+      }
+      @Override
+      public void topLevel(int index, Rule rule, long emitted) {
+        for (var listener : listeners) listener.topLevel(index, rule, emitted);
+      }
+      @Override
+      public void repository(String name, Rule rule, long emitted) {
+        for (var listener : listeners)
+          listener.repository(name, rule, emitted);
+      }
+      @Override
+      public void pattern(String entry, Rule rule, String name,
+        Pattern pattern, long length, int depth, int captures) {
+        for (var listener : listeners) listener.pattern(entry, rule, name,
+          pattern, length, depth, captures);
+      }
+      @Override
+      public void include(String name, int hits) {
+        for (var listener : listeners) listener.include(name, hits);
+      }
+      @Override
+      public void shadow(Eliminator.Shadow shadow) {
+        for (var listener : listeners) listener.shadow(shadow);
+      }
+    };
+  }
+
+  default void phase(Phase phase, long nanoseconds) {}
+  default void topLevel(int index, Rule rule, long emitted) {}
+  default void repository(String name, Rule rule, long emitted) {}
+  default void pattern(String entry, Rule rule, String name, Pattern pattern,
+    long length, int depth, int captures) {}
+  default void include(String name, int hits) {}
+  default void shadow(Eliminator.Shadow shadow) {}
+}
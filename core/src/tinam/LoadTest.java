@@ -0,0 +1,312 @@
+package tinam;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+public final class LoadTest {
+  public static void main(String[] arguments)
+    throws IOException, InterruptedException {
+    Path socket     = null;
+    var  documents  = 64;
+    var  requests   = 100;
+    var  range      = 50;
+    var  timeout    = 10_000L;
+    var  positional = new ArrayList<String>();
+    for (var i = 0; i < arguments.length; i++) switch (arguments[i]) {
+    case "--socket" -> socket = Path.of(arguments[++i]);
+    case "--documents" -> documents = Integer.parseInt(arguments[++i]);
+    case "--requests" -> requests = Integer.parseInt(arguments[++i]);
+    case "--range" -> range = Integer.parseInt(arguments[++i]);
+    case "--timeout" -> timeout = Long.parseLong(arguments[++i]);
+    default -> positional.add(arguments[i]);
+    }
+    if (positional.size() != 2) throw new RuntimeException(
+      "Expected a grammar extension and a source file, not `%s`!"
+        .formatted(positional));
+    var extension = positional.get(0);
+    var source    = Files.readAllLines(Path.of(positional.get(1)),
+      StandardCharsets.UTF_8);
+    if (source.isEmpty()) throw new RuntimeException(
+      "Source `%s` is empty!".formatted(positional.get(1)));
+
+    Process process = null;
+    Client  client;
+    if (socket == null) {
+      process = spawn();
+      client  = new Client(process.getInputStream(), process.getOutputStream(),
+        timeout);
+    } else {
+      var channel = SocketChannel.open(StandardProtocolFamily.UNIX);
+      channel.connect(UnixDomainSocketAddress.of(socket));
+      client = new Client(Channels.newInputStream(channel),
+        Channels.newOutputStream(channel), timeout);
+    }
+
+    var test = new LoadTest(client, extension, source, requests, range);
+    try {
+      test.run(documents);
+    } finally {
+      client.close();
+      if (process != null) process.waitFor();
+    }
+  }
+
+  private static Process spawn() throws IOException {
+    var current   = ProcessHandle.current().info();
+    var command   = new ArrayList<String>();
+    var arguments = current.arguments().map(List::of).orElse(List.of());
+    command.add(current.command().orElse("java"));
+    for (var argument : arguments) {
+      if (argument.equals("-m") || argument.equals("--module")
+        || argument.equals(LoadTest.class.getName()))
+        break;
+      command.add(argument);
+    }
+    if (LoadTest.class.getModule().isNamed()) {
+      command.add("-m");
+      command.add("tinam/" + Service.class.getName());
+    } else {
+      command.add(Service.class.getName());
+    }
+    return new ProcessBuilder(command)
+      .redirectError(ProcessBuilder.Redirect.INHERIT).start();
+  }
+
+  private static final int OPEN     = 0;
+  private static final int EDIT     = 1;
+  private static final int TOKENIZE = 2;
+  private static final int CLOSE    = 3;
+
+  private static final String[] COMMANDS = { "open", "edit", "tokenize",
+    "close" };
+
+  private final Client       client;
+  private final String       extension;
+  private final List<String> source;
+  private final int          requests;
+  private final int          range;
+  private final AtomicLong   tokens;
+
+  private LoadTest(Client client, String extension, List<String> source,
+    int requests, int range) {
+    this.client    = client;
+    this.extension = extension;
+    this.source    = source;
+    this.requests  = requests;
+    this.range     = range;
+    tokens         = new AtomicLong();
+  }
+
+  private void run(int documents) {
+    var grammars = client.request("grammars");
+    if (grammars == null) throw new RuntimeException(
+      "Service did not list its grammars in time!");
+    if (!grammars.contains(extension)) throw new RuntimeException(
+      "Service does not provide `%s`, only `%s`!".formatted(extension,
+        grammars));
+
+    var results = new ArrayList<CompletableFuture<long[][]>>();
+    var start   = System.nanoTime();
+    try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+      for (var i = 0; i < documents; i++) {
+        var document = i;
+        results.add(
+          CompletableFuture.supplyAsync(() -> document(document), executor));
+      }
+    }
+    var elapsed = System.nanoTime() - start;
+
+    var merged = new long[COMMANDS.length][];
+    for (var i = 0; i < COMMANDS.length; i++) merged[i] = new long[0];
+    for (var result : results) {
+      long[][] document;
+      try {
+        document = result.get();
+      } catch (InterruptedException | ExecutionException exception) {
+        throw new RuntimeException(exception);
+      }
+      for (var i = 0; i < COMMANDS.length; i++) {
+        var previous = merged[i].length;
+        merged[i] = Arrays.copyOf(merged[i], previous + document[i].length);
+        System.arraycopy(document[i], 0, merged[i], previous,
+          document[i].length);
+      }
+    }
+
+    var total = 0L;
+    for (var command : merged) total += command.length;
+    System.out.printf(
+      "%d documents, %d requests, %d timeouts, %d tokens in %.3f s: %.1f "
+        + "requests/s.%n",
+      documents, total, client.timeouts(), tokens.get(), elapsed / 1e9,
+      total / (elapsed / 1e9));
+    System.out.printf("%-10s %8s %10s %10s %10s %10s%n", "", "count",
+      "p50 ms", "p90 ms", "p99 ms", "max ms");
+    for (var i = 0; i < COMMANDS.length; i++) {
+      var command = merged[i];
+      if (command.length == 0) continue;
+      Arrays.sort(command);
+      System.out.printf("%-10s %8d %10.3f %10.3f %10.3f %10.3f%n", COMMANDS[i],
+        command.length, percentile(command, 0.50) / 1e6,
+        percentile(command, 0.90) / 1e6, percentile(command, 0.99) / 1e6,
+        command[command.length - 1] / 1e6);
+    }
+  }
+
+  private static long percentile(long[] sorted, double fraction) {
+    var index = (int) Math.ceil(fraction * sorted.length) - 1;
+    return sorted[Math.max(0, index)];
+  }
+
+  private long[][] document(int document) {
+    var random    = new Random(document);
+    var name      = "document-" + document;
+    var lines     = source.size();
+    var latencies = new long[COMMANDS.length][];
+    var counts    = new int[COMMANDS.length];
+    latencies[OPEN]     = new long[1];
+    latencies[EDIT]     = new long[requests];
+    latencies[TOKENIZE] = new long[requests];
+    latencies[CLOSE]    = new long[1];
+
+    var start = System.nanoTime();
+    if (client.request(text("open " + name + " " + extension,
+      String.join("\n", source))) != null)
+      latencies[OPEN][counts[OPEN]++] = System.nanoTime() - start;
+
+    for (var i = 0; i < requests; i++) {
+      var edited = random.nextInt(lines);
+      start = System.nanoTime();
+      if (client.request(text("edit " + name + " " + edited + " "
+        + (edited + 1), source.get(random.nextInt(lines)))) != null)
+        latencies[EDIT][counts[EDIT]++] = System.nanoTime() - start;
+
+      var first = random.nextInt(lines);
+      start = System.nanoTime();
+      var response = client.request(
+        "tokenize " + name + " " + first + " " + (first + range));
+      if (response == null) continue;
+      latencies[TOKENIZE][counts[TOKENIZE]++] = System.nanoTime() - start;
+      tokens.addAndGet(response.size());
+    }
+
+    start = System.nanoTime();
+    if (client.request("close " + name) != null)
+      latencies[CLOSE][counts[CLOSE]++] = System.nanoTime() - start;
+    for (var i = 0; i < COMMANDS.length; i++)
+      latencies[i] = Arrays.copyOf(latencies[i], counts[i]);
+    return latencies;
+  }
+
+  private static String text(String header, String text) {
+    return header + " " + text.length() + "\n" + text;
+  }
+
+  private static final class Client {
+    private final BufferedReader                               input;
+    private final Writer                                       output;
+    private final ReentrantLock                                lock;
+    private final Map<String, CompletableFuture<List<String>>> pending;
+    private final AtomicLong                                   ids;
+    private final AtomicLong                                   timeouts;
+    private final long                                         timeout;
+    private final Thread                                       reader;
+
+    private volatile boolean closed;
+
+    Client(InputStream input, OutputStream output, long timeout) {
+      this.input   = new BufferedReader(
+        new InputStreamReader(input, StandardCharsets.UTF_8));
+      this.output  = new BufferedWriter(
+        new OutputStreamWriter(output, StandardCharsets.UTF_8));
+      this.timeout = timeout;
+      lock         = new ReentrantLock();
+      pending      = new ConcurrentHashMap<>();
+      ids          = new AtomicLong();
+      timeouts     = new AtomicLong();
+      reader       = Thread.ofPlatform().daemon().start(this::read);
+    }
+
+    List<String> request(String request) {
+      var id       = String.valueOf(ids.incrementAndGet());
+      var response = new CompletableFuture<List<String>>();
+      pending.put(id, response);
+      lock.lock();
+      try {
+        output.write(id + " " + request + "\n");
+        output.flush();
+      } catch (IOException exception) {
+        throw new RuntimeException(exception);
+      } finally {
+        lock.unlock();
+      }
+      try {
+        return response.get(timeout, TimeUnit.MILLISECONDS);
+      } catch (TimeoutException exception) {
+        pending.remove(id);
+        timeouts.incrementAndGet();
+        return null;
+      } catch (InterruptedException | ExecutionException exception) {
+        throw new RuntimeException(exception);
+      }
+    }
+
+    long timeouts() { return timeouts.get(); }
+
+    private void read() {
+      try {
+        String header;
+        while ((header = input.readLine()) != null) {
+          var fields   = header.split(" ", 3);
+          var response = pending.remove(fields[0]);
+          if (fields[1].equals("error")) {
+            if (response != null)
+              response.completeExceptionally(new RuntimeException(
+                "Request [%s] failed: %s".formatted(fields[0], fields[2])));
+            continue;
+          }
+          var count = Integer.parseInt(fields[2]);
+          var lines = new ArrayList<String>(count);
+          for (var i = 0; i < count; i++) lines.add(input.readLine());
+          if (response != null) response.complete(lines);
+        }
+      } catch (IOException exception) {
+        if (!closed) exception.printStackTrace();
+      }
+      for (var response : pending.values()) response.completeExceptionally(
+        new RuntimeException("Service closed the connection!"));
+    }
+
+    void close() throws IOException, InterruptedException {
+      closed = true;
+      output.close();
+      reader.join();
+    }
+  }
+}
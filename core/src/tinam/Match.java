@@ -0,0 +1,78 @@
+package tinam;
+
+import java.util.Arrays;
+
+public final class Match {
+  private static final int CLOCK_MASK = 0x3FF;
+
+  final int[]        groups;
+  final int[]        starts;
+  final Repetition[] repetitions;
+  final int[]        targets;
+
+  CharSequence input;
+  int          length;
+
+  private long    steps;
+  private long    remaining;
+  private int     ticks;
+  private long    deadline;
+  private boolean exhausted;
+
+  Match(int captures, int loops, int targets) {
+    groups       = new int[(captures + 1) * 2];
+    starts       = new int[captures + 1];
+    repetitions  = new Repetition[loops];
+    this.targets = new int[targets];
+    steps        = Long.MAX_VALUE;
+    deadline     = Long.MAX_VALUE;
+  }
+
+  public Match reset(CharSequence input) {
+    this.input = input;
+    length     = input.length();
+    exhausted  = false;
+    clear();
+    return this;
+  }
+
+  public Match limit(long steps, long deadline) {
+    this.steps    = steps;
+    this.deadline = deadline;
+    exhausted     = false;
+    return this;
+  }
+
+  public CharSequence input() { return input; }
+  public int captures() { return starts.length - 1; }
+  public int start() { return groups[0]; }
+  public int end() { return groups[1]; }
+  public int start(int group) { return groups[group * 2]; }
+  public int end(int group) { return groups[group * 2 + 1]; }
+  public boolean exhausted() { return exhausted; }
+
+  void attempt() {
+    remaining = steps;
+    clear();
+  }
+
+  boolean step() {
+    if (exhausted) return false;
+    if (--remaining < 0
+      || (++ticks & CLOCK_MASK) == 0 && System.nanoTime() > deadline) {
+      exhausted = true;
+      return false;
+    }
+    return true;
+  }
+
+  Repetition repetition(int loop) {
+    var result = repetitions[loop];
+    if (result == null) result = repetitions[loop] = new Repetition();
+    return result;
+  }
+
+  void exhaust() { exhausted = true; }
+
+  void clear() { Arrays.fill(groups, -1); }
+}
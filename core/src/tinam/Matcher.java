@@ -0,0 +1,20 @@
+package tinam;
+
+public interface Matcher {
+  static Matcher interpreted(Pattern pattern) {
+    return new Interpreter(pattern);
+  }
+  static Matcher compiled(Pattern pattern) {
+    var arena = Arena.of(pattern);
+    return arena.matcher(arena.root());
+  }
+
+  Match newMatch();
+  boolean match(Match match, int at);
+
+  default boolean find(Match match, int from) {
+    for (var at = from; at <= match.length && !match.exhausted(); at++)
+      if (match(match, at)) return true;
+    return false;
+  }
+}
@@ -119,7 +119,8 @@ public sealed interface Pattern {
   }
   static void validateRange(char first, char last) {
     if (first > last) throw new RuntimeException(
-      "First character '%c' cannot come after the last one '%c' in the range!");
+      "First character '%c' cannot come after the last one '%c' in the range!"
+        .formatted(first, last));
     if (first == last) throw new RuntimeException(
       "First character is the same as the last one in the range!");
   }
@@ -0,0 +1,27 @@
+package tinam;
+
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.ServiceLoader;
+
+public interface Provider {
+  static Map<String, Grammar> grammars(List<Path> files) {
+    var result = new LinkedHashMap<String, Grammar>();
+    if (files.isEmpty()) {
+      for (var provider : ServiceLoader.load(Provider.class)) {
+        var grammar = provider.grammar();
+        result.put(grammar.extension(), grammar);
+      }
+    } else {
+      for (var file : files) {
+        var grammar = Decoder.load(file);
+        result.put(grammar.extension(), grammar);
+      }
+    }
+    return result;
+  }
+
+  Grammar grammar();
+}
@@ -0,0 +1,112 @@
+package tinam;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+final class Repetition {
+  interface Body {
+    boolean iterate(Match match, int at);
+    boolean exit(Match match, int at);
+  }
+
+  private static final int POSITION = 0;
+  private static final int FIRST    = 1;
+  private static final int LAST     = 2;
+  private static final int CURSOR   = 3;
+  private static final int FRAME    = 4;
+
+  private final BitSet seen;
+
+  private int[] frames;
+  private int[] ends;
+  private int[] saved;
+  private int[] original;
+  private int   depth;
+  private int   count;
+  private int   low;
+  private int   width;
+
+  Repetition() {
+    seen     = new BitSet();
+    frames   = new int[FRAME * 8];
+    ends     = new int[8];
+    saved    = new int[0];
+    original = new int[0];
+  }
+
+  boolean run(Match match, int at, int minimum, int maximum, int group,
+    int captures, Body body) {
+    low   = group * 2;
+    width = captures * 2;
+    depth = 0;
+    count = 0;
+    if (original.length < width) original = new int[width];
+    System.arraycopy(match.groups, low, original, 0, width);
+    if (!enter(match, at, maximum, body)) return fail(match);
+    while (depth != 0) {
+      var frame      = (depth - 1) * FRAME;
+      var iterations = depth - 1;
+      var cursor     = frames[frame + CURSOR];
+      if (cursor < frames[frame + LAST]) {
+        frames[frame + CURSOR] = cursor + 1;
+        var end = ends[cursor];
+        System.arraycopy(saved, cursor * width, match.groups, low, width);
+        if (end == frames[frame + POSITION] && iterations >= minimum) {
+          if (body.exit(match, end)) return true;
+          if (match.exhausted()) return fail(match);
+          continue;
+        }
+        if (!enter(match, end, maximum, body)) return fail(match);
+        continue;
+      }
+      if (depth == 1)
+        System.arraycopy(original, 0, match.groups, low, width);
+      else System.arraycopy(saved,
+        (frames[frame - FRAME + CURSOR] - 1) * width, match.groups, low,
+        width);
+      if (iterations >= minimum
+        && body.exit(match, frames[frame + POSITION]))
+        return true;
+      if (match.exhausted()) return fail(match);
+      count = frames[frame + FIRST];
+      depth--;
+    }
+    return fail(match);
+  }
+
+  boolean record(Match match, int end) {
+    if (seen.get(end)) return false;
+    seen.set(end);
+    if (count == ends.length) ends = Arrays.copyOf(ends, count * 2);
+    if ((count + 1) * width > saved.length)
+      saved = Arrays.copyOf(saved, Math.max(saved.length * 2, width * 8));
+    ends[count] = end;
+    System.arraycopy(match.groups, low, saved, count * width, width);
+    count++;
+    return false;
+  }
+
+  private boolean enter(Match match, int at, int maximum, Body body) {
+    if (!match.step()) return false;
+    if ((depth + 1) * FRAME > frames.length)
+      frames = Arrays.copyOf(frames, frames.length * 2);
+    var frame = depth++ * FRAME;
+    var first = count;
+    frames[frame + POSITION] = at;
+    frames[frame + FIRST]    = first;
+    if (depth - 1 < maximum) {
+      body.iterate(match, at);
+      for (var i = first; i < count; i++) seen.clear(ends[i]);
+    }
+    frames[frame + LAST]   = count;
+    frames[frame + CURSOR] = first;
+    return !match.exhausted();
+  }
+
+  private boolean fail(Match match) {
+    System.arraycopy(original, 0, match.groups, low, width);
+    depth = 0;
+    count = 0;
+    return false;
+  }
+}
@@ -0,0 +1,438 @@
+package tinam;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import tinam.Tokenizer.State;
+
+public final class Service {
+  public static void main(String[] arguments) {
+    Path socket      = null;
+    var  cacheBytes  = 64L << 20;
+    var  steps       = Long.MAX_VALUE;
+    var  nanoseconds = Long.MAX_VALUE;
+    var  files       = new ArrayList<Path>();
+    for (var i = 0; i < arguments.length; i++) switch (arguments[i]) {
+    case "--socket" -> socket = Path.of(arguments[++i]);
+    case "--grammar" -> files.add(Path.of(arguments[++i]));
+    case "--cache" -> cacheBytes = Long.parseLong(arguments[++i]);
+    case "--steps" -> steps = Long.parseLong(arguments[++i]);
+    case "--line-time" ->
+      nanoseconds = Long.parseLong(arguments[++i]) * 1_000_000;
+    default -> throw new RuntimeException(
+      "Unknown option `%s`!".formatted(arguments[i]));
+    }
+    var service = new Service(cacheBytes, Budget.of(steps, nanoseconds),
+      Provider.grammars(files).values());
+    try {
+      if (socket == null) service.serve(System.in, System.out);
+      else service.listen(socket);
+    } catch (IOException exception) {
+      exception.printStackTrace();
+    }
+  }
+
+  private final Map<String, Tokenizer>    tokenizers;
+  private final Map<String, Document>     documents;
+  private final Map<List<String>, String> scopes;
+  private final Cache                     cache;
+
+  public Service(long cacheBytes, Budget budget) {
+    this(cacheBytes, budget, Provider.grammars(List.of()).values());
+  }
+
+  public Service(long cacheBytes, Budget budget,
+    Collection<Grammar> grammars) {
+    tokenizers = new LinkedHashMap<>();
+    for (var grammar : grammars)
+      tokenizers.put(grammar.extension(), Tokenizer.of(grammar, budget));
+    documents = new ConcurrentHashMap<>();
+    scopes    = new ConcurrentHashMap<>();
+    cache     = new Cache(cacheBytes);
+  }
+
+  public void listen(Path socket) throws IOException {
+    Files.deleteIfExists(socket);
+    try (var server = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+      var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+      server.bind(UnixDomainSocketAddress.of(socket));
+      while (true) {
+        var channel = server.accept();
+        executor.execute(() -> {
+          try (channel) {
+            serve(Channels.newInputStream(channel),
+              Channels.newOutputStream(channel));
+          } catch (IOException exception) {
+            exception.printStackTrace();
+          }
+        });
+      }
+    } finally {
+      Files.deleteIfExists(socket);
+    }
+  }
+
+  public void serve(InputStream input, OutputStream output)
+    throws IOException {
+    var reader     = new BufferedReader(
+      new InputStreamReader(input, StandardCharsets.UTF_8));
+    var connection = new Connection(new BufferedWriter(
+      new OutputStreamWriter(output, StandardCharsets.UTF_8)));
+    try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+      String header;
+      while ((header = reader.readLine()) != null) {
+        if (header.isBlank()) continue;
+        var fields = header.split(" ");
+        var id     = fields[0];
+        try {
+          dispatch(fields, reader, connection, executor);
+        } catch (RuntimeException exception) {
+          connection.error(id, exception);
+        }
+      }
+      connection.await();
+    }
+  }
+
+  private void dispatch(String[] fields, Reader reader, Connection connection,
+    ExecutorService executor) throws IOException {
+    var id = fields[0];
+    switch (command(fields)) {
+    case "grammars" -> executor.execute(connection.answered(id,
+      () -> connection.respond(id, new ArrayList<>(tokenizers.keySet()))));
+    case "open" -> {
+      var text      = text(reader, fields, 4);
+      var tokenizer = tokenizers.get(field(fields, 3));
+      if (tokenizer == null) throw new RuntimeException(
+        "Unknown grammar `%s`!".formatted(fields[3]));
+      var document = new Document(tokenizer);
+      var previous = documents.put(field(fields, 2), document);
+      if (previous != null)
+        previous.schedule(executor, connection.tracked(previous::close));
+      document.schedule(executor, connection.answered(id, () -> {
+        document.edit(0, 0, text);
+        connection.respond(id, List.of());
+      }));
+    }
+    case "edit" -> {
+      var text     = text(reader, fields, 5);
+      var document = document(fields);
+      var start    = Integer.parseInt(field(fields, 3));
+      var end      = Integer.parseInt(field(fields, 4));
+      document.schedule(executor, connection.answered(id, () -> {
+        document.edit(start, end, text);
+        connection.respond(id, List.of());
+      }));
+    }
+    case "tokenize" -> {
+      var document = document(fields);
+      var start    = Integer.parseInt(field(fields, 3));
+      var end      = Integer.parseInt(field(fields, 4));
+      document.schedule(executor, connection.answered(id,
+        () -> connection.respond(id, document.tokenize(start, end))));
+    }
+    case "close" -> {
+      var document = document(fields);
+      documents.remove(fields[2], document);
+      document.schedule(executor, connection.answered(id, () -> {
+        document.close();
+        connection.respond(id, List.of());
+      }));
+    }
+    default -> throw new RuntimeException(
+      "Unknown command `%s`!".formatted(fields[1]));
+    }
+  }
+
+  private static String command(String[] fields) { return field(fields, 1); }
+
+  private static String field(String[] fields, int index) {
+    if (index >= fields.length) throw new RuntimeException(
+      "Missing field [%d] of `%s`!".formatted(index, String.join(" ", fields)));
+    return fields[index];
+  }
+
+  private static String text(Reader reader, String[] fields, int index)
+    throws IOException {
+    var length = Integer.parseInt(field(fields, index));
+    var text   = new char[length];
+    for (var read = 0; read < length;) {
+      var count = reader.read(text, read, length - read);
+      if (count == -1) throw new RuntimeException(
+        "Text of `%s` ended early!".formatted(String.join(" ", fields)));
+      read += count;
+    }
+    return new String(text);
+  }
+
+  private Document document(String[] fields) {
+    var document = documents.get(field(fields, 2));
+    if (document == null) throw new RuntimeException(
+      "Unknown document `%s`!".formatted(fields[2]));
+    return document;
+  }
+
+  private static final class Connection {
+    private final Writer        output;
+    private final ReentrantLock lock;
+    private final ReentrantLock pendingLock;
+    private final Condition     idle;
+    private long                pending;
+
+    Connection(Writer output) {
+      this.output = output;
+      lock        = new ReentrantLock();
+      pendingLock = new ReentrantLock();
+      idle        = pendingLock.newCondition();
+    }
+
+    Runnable answered(String id, Runnable task) {
+      return tracked(() -> {
+        try {
+          task.run();
+        } catch (Throwable exception) {
+          error(id, exception);
+        }
+      });
+    }
+
+    Runnable tracked(Runnable task) {
+      pendingLock.lock();
+      try {
+        pending++;
+      } finally {
+        pendingLock.unlock();
+      }
+      return () -> {
+        try {
+          task.run();
+        } finally {
+          pendingLock.lock();
+          try {
+            if (--pending == 0) idle.signalAll();
+          } finally {
+            pendingLock.unlock();
+          }
+        }
+      };
+    }
+
+    void await() {
+      pendingLock.lock();
+      try {
+        while (pending != 0) idle.awaitUninterruptibly();
+      } finally {
+        pendingLock.unlock();
+      }
+    }
+
+    void respond(String id, List<String> lines) {
+      var response = new StringBuilder();
+      response.append(id).append(" ok ").append(lines.size()).append('\n');
+      for (var line : lines) response.append(line).append('\n');
+      write(response.toString());
+    }
+
+    void error(String id, Throwable exception) {
+      var message = exception.getMessage();
+      if (message == null) message = exception.getClass().getName();
+      write(id + " error " + message.replace('\n', ' ') + '\n');
+    }
+
+    private void write(String response) {
+      lock.lock();
+      try {
+        output.write(response);
+        output.flush();
+      } catch (IOException exception) {
+        throw new RuntimeException(exception);
+      } finally {
+        lock.unlock();
+      }
+    }
+  }
+
+  private static final class Line {
+    final String text;
+
+    Line(String text) { this.text = text; }
+  }
+
+  private record Tokenized(State start, State end, int[] bounds,
+    String[] scopes, long bytes) {}
+
+  private final class Document {
+    private final Tokenizer     tokenizer;
+    private final ReentrantLock lock;
+    private final List<Line>    lines;
+
+    private CompletableFuture<Void> tail;
+    private int                     valid;
+
+    Document(Tokenizer tokenizer) {
+      this.tokenizer = tokenizer;
+      lock           = new ReentrantLock();
+      lines          = new ArrayList<>();
+      tail           = CompletableFuture.completedFuture(null);
+    }
+
+    void schedule(ExecutorService executor, Runnable task) {
+      lock.lock();
+      try {
+        tail = tail.thenRunAsync(task, executor).exceptionally(exception -> {
+          exception.printStackTrace();
+          return null;
+        });
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    void edit(int start, int end, String text) {
+      if (start < 0 || start > end || end > lines.size())
+        throw new RuntimeException("Invalid edit range [%d, %d) of [%d] lines!"
+          .formatted(start, end, lines.size()));
+      var replaced = lines.subList(start, end);
+      for (var line : replaced) cache.remove(line);
+      replaced.clear();
+      var inserted = new ArrayList<Line>();
+      for (var from = 0; from <= text.length();) {
+        var to = text.indexOf('\n', from);
+        if (to == -1) to = text.length();
+        var line = text.substring(from,
+          to > from && text.charAt(to - 1) == '\r' ? to - 1 : to);
+        inserted.add(new Line(line));
+        from = to + 1;
+      }
+      lines.addAll(start, inserted);
+      valid = Math.min(valid, start);
+    }
+
+    List<String> tokenize(int start, int end) {
+      end = Math.min(end, lines.size());
+      var result  = new ArrayList<String>();
+      var state   = tokenizer.initial();
+      var from    = 0;
+      var session = tokenizer.session();
+      for (var i = Math.min(start, valid) - 1; i >= 0; i--) {
+        var tokenized = cache.get(lines.get(i));
+        if (tokenized != null) {
+          state = tokenized.end;
+          from  = i + 1;
+          break;
+        }
+      }
+      for (var i = from; i < end; i++) {
+        var line      = lines.get(i);
+        var tokenized = cache.get(line);
+        if (tokenized == null || !tokenized.start.equals(state)) {
+          tokenized = tokenize(session, line, state);
+          cache.put(line, tokenized);
+        }
+        if (i >= start) for (var j = 0; j < tokenized.scopes.length; j++)
+          result.add(i + " " + tokenized.bounds[j * 2] + " "
+            + tokenized.bounds[j * 2 + 1] + " " + tokenized.scopes[j]);
+        state = tokenized.end;
+      }
+      valid = Math.max(valid, end);
+      return result;
+    }
+
+    private Tokenized tokenize(Tokenizer.Session session, Line line,
+      State start) {
+      var bounds = new ArrayList<Integer>();
+      var names  = new ArrayList<String>();
+      var end    = session.tokenize(line.text, start, (from, to, scopes) -> {
+        bounds.add(from);
+        bounds.add(to);
+        names.add(Service.this.scopes.computeIfAbsent(scopes,
+          key -> String.join(" ", key)));
+      });
+      var packed = new int[bounds.size()];
+      for (var i = 0; i < packed.length; i++) packed[i] = bounds.get(i);
+      return new Tokenized(start, end, packed, names.toArray(new String[0]),
+        Cache.OVERHEAD + 4L * packed.length + 4L * names.size());
+    }
+
+    void close() {
+      for (var line : lines) cache.remove(line);
+      lines.clear();
+      valid = 0;
+    }
+  }
+
+  private static final class Cache {
+    static final long OVERHEAD = 96;
+
+    private final long                           limit;
+    private final LinkedHashMap<Line, Tokenized> entries;
+    private final ReentrantLock                  lock;
+    private long                                 bytes;
+
+    Cache(long limit) {
+      this.limit = limit;
+      entries    = new LinkedHashMap<>(16, 0.75f, true);
+      lock       = new ReentrantLock();
+    }
+
+    Tokenized get(Line line) {
+      lock.lock();
+      try {
+        return entries.get(line);
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    void put(Line line, Tokenized tokenized) {
+      lock.lock();
+      try {
+        var previous = entries.put(line, tokenized);
+        if (previous != null) bytes -= previous.bytes;
+        bytes += tokenized.bytes;
+        var iterator = entries.values().iterator();
+        while (bytes > limit && iterator.hasNext()) {
+          bytes -= iterator.next().bytes;
+          iterator.remove();
+        }
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    void remove(Line line) {
+      lock.lock();
+      try {
+        var previous = entries.remove(line);
+        if (previous != null) bytes -= previous.bytes;
+      } finally {
+        lock.unlock();
+      }
+    }
+  }
+}
@@ -0,0 +1,333 @@
+package tinam;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import tinam.Rule.*;
+import tinam.Pattern.*;
+
+public final class Tokenizer {
+  public interface Tokens {
+    void token(int start, int end, List<String> scopes);
+
+    default void exhausted(Rule rule, int at) {}
+  }
+
+  public static final class State {
+    private final State        parent;
+    private final Delimitated  rule;
+    private final List<String> scopes;
+    private final int          depth;
+
+    private State(State parent, Delimitated rule, List<String> scopes) {
+      this.parent = parent;
+      this.rule   = rule;
+      this.scopes = scopes;
+      depth       = parent == null ? 0 : parent.depth + 1;
+    }
+
+    public State parent() { return parent; }
+    public Delimitated rule() { return rule; }
+    public List<String> scopes() { return scopes; }
+    public int depth() { return depth; }
+
+    @Override
+    public boolean equals(Object other) {
+      if (this == other) return true;
+      if (!(other instanceof State state) || state.depth != depth) return false;
+      State a = this, b = state;
+      for (; a != b; a = a.parent, b = b.parent)
+        if (a.rule != b.rule) return false;
+      return true;
+    }
+
+    @Override
+    public int hashCode() {
+      var result = 0;
+      for (var state = this; state != null; state = state.parent)
+        result = result * 31 + System.identityHashCode(state.rule);
+      return result;
+    }
+  }
+
+  public static Tokenizer of(Grammar tokenized) {
+    return of(tokenized, Budget.UNLIMITED);
+  }
+
+  public static Tokenizer of(Grammar tokenized, Budget budget) {
+    return new Tokenizer(tokenized, budget);
+  }
+
+  private record Expression(Matcher matcher, String[] captures, int index) {}
+  private record Candidate(Rule rule, Expression expression, String scope) {}
+
+  private final Grammar                       tokenized;
+  private final Budget                        budget;
+  private final State                         initial;
+  private final Candidate[]                   topLevel;
+  private final Map<Delimitated, Candidate[]> contexts;
+  private final Map<Delimitated, Expression>  terminators;
+  private final Map<Pattern, Expression>      expressions;
+
+  private Tokenizer(Grammar tokenized, Budget budget) {
+    this.tokenized = tokenized;
+    this.budget    = budget;
+    initial        = new State(null, null,
+      List.of("source." + tokenized.extension()));
+    contexts       = new IdentityHashMap<>();
+    terminators    = new IdentityHashMap<>();
+    expressions    = new IdentityHashMap<>();
+    topLevel       = context(tokenized.topLevel());
+  }
+
+  public Grammar tokenized() { return tokenized; }
+  public Budget budget() { return budget; }
+  public State initial() { return initial; }
+
+  public Session session() { return new Session(); }
+
+  public State tokenize(CharSequence line, State state, Tokens tokens) {
+    return session().tokenize(line, state, tokens);
+  }
+
+  private Candidate[] context(List<Rule> rules) {
+    var flattened = new ArrayList<Rule>();
+    flatten(rules, flattened);
+    var result = new Candidate[flattened.size()];
+    for (var i = 0; i < result.length; i++) {
+      var rule = flattened.get(i);
+      result[i] = switch (rule) {
+      case Unconditional unconditional -> throw new RuntimeException(
+        "Unconditional rule `%s` was not flattened!".formatted(
+          unconditional.data().scope().orElse("")));
+      case Conditional conditional -> new Candidate(rule,
+        expression(conditional.condition()), scope(rule));
+      case Delimitated delimitated -> {
+        if (!contexts.containsKey(delimitated)) {
+          contexts.put(delimitated, null);
+          terminators.put(delimitated, expression(delimitated.terminator()));
+          contexts.put(delimitated, context(delimitated.data().inner()));
+        }
+        yield new Candidate(rule, expression(delimitated.initializer()),
+          scope(rule));
+      }
+      };
+    }
+    return result;
+  }
+
+  private static void flatten(List<Rule> rules, List<Rule> flattened) {
+    for (var rule : rules) {
+      if (rule instanceof Unconditional)
+        flatten(rule.data().inner(), flattened);
+      else flattened.add(rule);
+    }
+  }
+
+  private String scope(Rule rule) {
+    return rule.data().scope().isPresent()
+      ? rule.data().scope().get() + '.' + tokenized.extension()
+      : null;
+  }
+
+  private Expression expression(Pattern pattern) {
+    var result = expressions.get(pattern);
+    if (result != null) return result;
+    var captures = new ArrayList<String>();
+    captures.add(null);
+    captures(pattern, captures);
+    var scoped = false;
+    for (var capture : captures) scoped |= capture != null;
+    result = new Expression(Matcher.compiled(pattern),
+      scoped ? captures.toArray(new String[0]) : null, expressions.size());
+    expressions.put(pattern, result);
+    return result;
+  }
+
+  private void captures(Pattern pattern, List<String> captures) {
+    switch (pattern) {
+    case Or or -> {
+      for (var alternative : or.alternatives()) captures(alternative, captures);
+    }
+    case And and -> {
+      for (var sequent : and.sequence()) captures(sequent, captures);
+    }
+    case Repeat repeat -> captures(repeat.repeated(), captures);
+    case InfiniteRepeat infiniteRepeat ->
+      captures(infiniteRepeat.repeated(), captures);
+    case Lookup lookup -> captures(lookup.looked(), captures);
+    case Capture capture -> {
+      captures.add(scope(capture.rule()));
+      captures(capture.pattern(), captures);
+    }
+    default -> {}
+    }
+  }
+
+  private static List<String> with(List<String> scopes, String scope) {
+    if (scope == null) return scopes;
+    var result = new ArrayList<String>(scopes.size() + 1);
+    result.addAll(scopes);
+    result.add(scope);
+    return Collections.unmodifiableList(result);
+  }
+
+  public final class Session {
+    private final Match[] matches;
+    private final long[]  searched;
+    private final int[]   searchedFrom;
+    private long          generation;
+    private long          deadline;
+
+    private Session() {
+      matches      = new Match[expressions.size()];
+      searched     = new long[expressions.size()];
+      searchedFrom = new int[expressions.size()];
+    }
+
+    public State tokenize(CharSequence line, State state, Tokens tokens) {
+      deadline = budget.deadline(System.nanoTime());
+      generation++;
+      var  position = 0;
+      var  stalled  = -1;
+      var  length   = line.length();
+      Rule last     = null;
+      while (true) {
+        var context = state.rule == null ? topLevel : contexts.get(state.rule);
+        if ((state.rule != null || context.length != 0)
+          && System.nanoTime() > deadline)
+          return exhaust(last != null
+            ? last
+            : state.rule != null ? state.rule : context[0].rule, line,
+            position, state, tokens);
+
+        Match     best      = null;
+        Candidate chosen    = null;
+        var       bestStart = Integer.MAX_VALUE;
+
+        if (state.rule != null) {
+          var terminator = terminators.get(state.rule);
+          var match      = find(terminator, line, position);
+          last = state.rule;
+          if (match.exhausted())
+            return exhaust(state.rule, line, position, state, tokens);
+          if (match.start() != -1) {
+            best      = match;
+            bestStart = match.start();
+          }
+        }
+        for (var i = 0; bestStart > position && i < context.length; i++) {
+          var candidate = context[i];
+          var match     = find(candidate.expression, line, position);
+          last = candidate.rule;
+          if (match.exhausted())
+            return exhaust(candidate.rule, line, position, state, tokens);
+          if (match.start() != -1 && match.start() < bestStart) {
+            best      = match;
+            chosen    = candidate;
+            bestStart = match.start();
+          }
+        }
+
+        if (best == null) {
+          emit(tokens, position, length, state.scopes);
+          return state;
+        }
+
+        var end       = best.end();
+        var progress  = end > position;
+        var candidate = chosen;
+        if (!progress && (candidate == null
+          ? stalled == position
+          : !(candidate.rule instanceof Delimitated) || stalled == position)) {
+          if (position == length) return state;
+          emit(tokens, position, position + 1, state.scopes);
+          position++;
+          continue;
+        }
+        if (!progress) stalled = position;
+
+        emit(tokens, position, bestStart, state.scopes);
+        if (candidate == null) {
+          emit(tokens, best, terminators.get(state.rule), state.scopes);
+          state = state.parent;
+        } else if (candidate.rule instanceof Delimitated delimitated) {
+          state = new State(state, delimitated,
+            with(state.scopes, candidate.scope));
+          emit(tokens, best, candidate.expression, state.scopes);
+        } else {
+          emit(tokens, best, candidate.expression,
+            with(state.scopes, candidate.scope));
+        }
+        position = end;
+      }
+    }
+
+    private Match find(Expression expression, CharSequence line, int from) {
+      var index = expression.index;
+      var match = matches[index];
+      if (match == null) match = matches[index] = expression.matcher.newMatch();
+      else if (searched[index] == generation && searchedFrom[index] <= from
+        && (match.start() == -1 || match.start() >= from))
+        return match;
+      searched[index]     = generation;
+      searchedFrom[index] = from;
+      match.reset(line).limit(budget.steps(), deadline);
+      try {
+        if (!expression.matcher.find(match, from)) match.clear();
+      } catch (StackOverflowError error) {
+        matches[index] = null;
+        match.exhaust();
+        match.clear();
+      }
+      return match;
+    }
+
+    private State exhaust(Rule rule, CharSequence line, int position,
+      State state, Tokens tokens) {
+      tokens.exhausted(rule, position);
+      emit(tokens, position, line.length(), state.scopes);
+      return state;
+    }
+
+    private void emit(Tokens tokens, int start, int end, List<String> scopes) {
+      if (start < end) tokens.token(start, end, scopes);
+    }
+
+    private void emit(Tokens tokens, Match match, Expression expression,
+      List<String> scopes) {
+      var start = match.start();
+      var end   = match.end();
+      if (expression.captures == null) {
+        emit(tokens, start, end, scopes);
+        return;
+      }
+      var bounds = new int[expression.captures.length * 2];
+      var count  = 0;
+      bounds[count++] = start;
+      bounds[count++] = end;
+      for (var group = 1; group < expression.captures.length; group++) {
+        if (expression.captures[group] == null || match.start(group) == -1)
+          continue;
+        bounds[count++] = Math.max(start, Math.min(end, match.start(group)));
+        bounds[count++] = Math.max(start, Math.min(end, match.end(group)));
+      }
+      Arrays.sort(bounds, 0, count);
+      for (var i = 1; i < count; i++) {
+        var from = bounds[i - 1];
+        var to   = bounds[i];
+        if (from == to) continue;
+        var segment = scopes;
+        for (var group = 1; group < expression.captures.length; group++)
+          if (expression.captures[group] != null && match.start(group) <= from
+            && match.start(group) != -1 && to <= match.end(group))
+            segment = with(segment, expression.captures[group]);
+        tokens.token(from, to, segment);
+      }
+    }
+  }
+}
@@ -0,0 +1,181 @@
+package tinam;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import tinam.Rule.*;
+import tinam.Pattern.*;
+import tinam.Writer.Emission;
+
+/**
+ * Checks that an emission mode matches like {@link Emission#DEFAULT} by
+ * running both regexes on java.util.regex. Editors run grammars on
+ * Oniguruma, so a pass only holds for constructs both dialects read the same
+ * way. The rewrites of {@link Emission#MINIMAL} stay inside that subset:
+ * {@code {n}} bounds, ungrouped sequences between {@code |}, unescaped
+ * '}' and '!' in literals, and '^' or '-' left unescaped only where neither
+ * dialect gives them a meaning inside a set.
+ */
+public final class Verifier {
+  public static void verify(Grammar verified, Emission emission) {
+    verify(verified, emission, Listener.NONE);
+  }
+
+  public static void verify(Grammar verified, Emission emission,
+    Listener listener) {
+    var start = System.nanoTime();
+    new Verifier(emission).verify(verified);
+    listener.phase(Listener.Phase.ANALYSIS, System.nanoTime() - start);
+  }
+
+  private static final int RANDOM_PROBES = 512;
+  private static final int RANDOM_LENGTH = 16;
+
+  private final Emission emission;
+
+  private final Set<Rule>    visited;
+  private final Set<Pattern> patterns;
+
+  private Verifier(Emission emission) {
+    this.emission = emission;
+    visited       = new LinkedHashSet<>();
+    patterns      = new LinkedHashSet<>();
+  }
+
+  private void verify(Grammar verified) {
+    verified.topLevel().forEach(this::visit);
+    verified.repository().keySet().forEach(this::visit);
+    for (var pattern : patterns) verify(pattern);
+  }
+
+  private void visit(Rule rule) {
+    if (!visited.add(rule)) return;
+    switch (rule) {
+    case Unconditional unconditional -> {}
+    case Conditional conditional -> visit(conditional.condition());
+    case Delimitated delimitated -> {
+      visit(delimitated.initializer());
+      visit(delimitated.terminator());
+    }
+    }
+    rule.data().inner().forEach(this::visit);
+  }
+
+  private void visit(Pattern pattern) {
+    patterns.add(pattern);
+    visitCaptures(pattern);
+  }
+
+  private void visitCaptures(Pattern pattern) {
+    switch (pattern) {
+    case Or or -> or.alternatives().forEach(this::visitCaptures);
+    case And and -> and.sequence().forEach(this::visitCaptures);
+    case Repeat repeat -> visitCaptures(repeat.repeated());
+    case InfiniteRepeat infiniteRepeat ->
+      visitCaptures(infiniteRepeat.repeated());
+    case Lookup lookup -> visitCaptures(lookup.looked());
+    case Capture capture -> {
+      visitCaptures(capture.pattern());
+      visit(capture.rule());
+    }
+    default -> {}
+    }
+  }
+
+  private void verify(Pattern pattern) {
+    var expected = Writer.regex(pattern, Emission.DEFAULT);
+    var actual   = Writer.regex(pattern, emission);
+    if (expected.equals(actual)) return;
+
+    var expectedCompiled = java.util.regex.Pattern.compile(expected);
+    var actualCompiled   = java.util.regex.Pattern.compile(actual);
+    var expectedMatcher  = expectedCompiled.matcher("");
+    var actualMatcher    = actualCompiled.matcher("");
+    if (expectedMatcher.groupCount() != actualMatcher.groupCount())
+      throw new RuntimeException(
+        "Regex `%s` has [%d] groups while `%s` has [%d]!".formatted(actual,
+          actualMatcher.groupCount(), expected, expectedMatcher.groupCount()));
+
+    for (var probe : probes(pattern)) {
+      expectedMatcher.reset(probe).useTransparentBounds(true)
+        .useAnchoringBounds(false);
+      actualMatcher.reset(probe).useTransparentBounds(true)
+        .useAnchoringBounds(false);
+      for (var start = 0; start <= probe.length(); start++) {
+        expectedMatcher.region(start, probe.length());
+        actualMatcher.region(start, probe.length());
+        var expectedFound = expectedMatcher.lookingAt();
+        var actualFound   = actualMatcher.lookingAt();
+        var same          = expectedFound == actualFound;
+        for (var group = 0; same && expectedFound
+          && group <= expectedMatcher.groupCount(); group++)
+          same = expectedMatcher.start(group) == actualMatcher.start(group)
+            && expectedMatcher.end(group) == actualMatcher.end(group);
+        if (!same) throw new RuntimeException(
+          "Regex `%s` does not match `%s` at [%d] like `%s`!".formatted(actual,
+            probe, start, expected));
+      }
+    }
+  }
+
+  private List<String> probes(Pattern pattern) {
+    var literals = new ArrayList<String>();
+    var alphabet = new StringBuilder(" \t_aZ0");
+    probeCollect(pattern, literals, alphabet);
+
+    var probes = new ArrayList<String>();
+    probes.add("");
+    probes.addAll(literals);
+    for (var literal : literals) for (var other : literals) {
+      probes.add(literal + other);
+      probes.add(literal + ' ' + other);
+    }
+    var random = new Random(pattern.hashCode());
+    for (var i = 0; i < RANDOM_PROBES; i++) {
+      var probe  = new StringBuilder();
+      var length = random.nextInt(RANDOM_LENGTH);
+      for (var j = 0; j < length; j++) {
+        if (!literals.isEmpty() && random.nextInt(4) == 0)
+          probe.append(literals.get(random.nextInt(literals.size())));
+        else probe.append(alphabet.charAt(random.nextInt(alphabet.length())));
+      }
+      probes.add(probe.toString());
+    }
+    return probes;
+  }
+
+  private void probeCollect(Pattern pattern, List<String> literals,
+    StringBuilder alphabet) {
+    switch (pattern) {
+    case One one -> alphabet.append(one.set());
+    case NotOne notOne -> alphabet.append(notOne.set());
+    case Range range -> probeRange(range.first(), range.last(), alphabet);
+    case NotRange notRange ->
+      probeRange(notRange.first(), notRange.last(), alphabet);
+    case All all -> {
+      literals.add(all.characters());
+      alphabet.append(all.characters());
+    }
+    case Or or -> or.alternatives()
+      .forEach(alternative -> probeCollect(alternative, literals, alphabet));
+    case And and -> and.sequence()
+      .forEach(sequent -> probeCollect(sequent, literals, alphabet));
+    case Repeat repeat -> probeCollect(repeat.repeated(), literals, alphabet);
+    case InfiniteRepeat infiniteRepeat ->
+      probeCollect(infiniteRepeat.repeated(), literals, alphabet);
+    case Lookup lookup -> probeCollect(lookup.looked(), literals, alphabet);
+    case Capture capture -> probeCollect(capture.pattern(), literals, alphabet);
+    default -> {}
+    }
+  }
+
+  private void probeRange(char first, char last, StringBuilder alphabet) {
+    alphabet.append(first).append((char) (first + (last - first) / 2))
+      .append(last);
+    if (first > Character.MIN_VALUE) alphabet.append((char) (first - 1));
+    if (last < Character.MAX_VALUE) alphabet.append((char) (last + 1));
+  }
+}
@@ -1,32 +1,89 @@
 package tinam;
 
+import static tinam.Encoder.*;
+
 import java.io.IOException;
 import java.io.OutputStreamWriter;
+import java.io.StringWriter;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Map.Entry;
-
-import tinam.Rule.*;
-import tinam.Pattern.*;
+import java.util.Map;
 
 public final class Writer {
+  public static enum Emission {
+    DEFAULT, MINIMAL;
+  }
+
   public static void write(OutputStreamWriter output, Grammar written) {
-    new Writer(output, written).write();
+    write(output, written, Emission.DEFAULT);
+  }
+
+  public static void write(OutputStreamWriter output, Grammar written,
+    Emission emission) {
+    write(output, written, emission, Listener.NONE);
+  }
+
+  public static void write(OutputStreamWriter output, Grammar written,
+    Emission emission, Listener listener) {
+    write(output, Arena.of(written), emission, listener);
+  }
+
+  public static void write(OutputStreamWriter output, Arena written,
+    Emission emission, Listener listener) {
+    new Writer(output, written, emission, listener).write();
+  }
+
+  public static String regex(Pattern pattern, Emission emission) {
+    var arena  = Arena.of(pattern);
+    var output = new StringWriter();
+    var writer = new Writer(output, arena, emission, Listener.NONE);
+    writer.captures = new ArrayList<>();
+    writer.regex(arena.root());
+    var escaped = output.toString();
+    var regex   = new StringBuilder(escaped.length());
+    for (var i = 0; i < escaped.length(); i++) {
+      var character = escaped.charAt(i);
+      if (character == '\\') character = escaped.charAt(++i);
+      regex.append(character);
+    }
+    return regex.toString();
   }
 
-  private final OutputStreamWriter output;
-  private final Grammar            written;
+  private final java.io.Writer       output;
+  private final Arena                written;
+  private final Emission             emission;
+  private final Listener             listener;
+  private final Arena.Converter      records;
+  private final String[]             names;
+  private final Map<String, Integer> includes;
 
   private boolean objectStart;
+  private boolean setStart;
+  private long    emitted;
+  private String  entry;
 
-  private List<Rule> captures;
+  private List<Integer> captures;
 
-  private Writer(OutputStreamWriter output, Grammar written) {
-    this.output  = output;
-    this.written = written;
+  private Writer(java.io.Writer output, Arena written, Emission emission,
+    Listener listener) {
+    this.output   = output;
+    this.written  = written;
+    this.emission = emission;
+    this.listener = listener;
+    records       = listener == Listener.NONE ? null : written.converter();
+    names         = new String[written.nodes()];
+    includes      = new LinkedHashMap<>();
   }
 
   private void write() {
+    var start = System.nanoTime();
+    for (var i = 0; i < written.repositorySize(); i++) {
+      var name = written.repositoryName(i);
+      names[written.repositoryRule(i)] = name;
+      includes.put(name, 0);
+    }
+
     writeCharacter('{');
 
     writeString("name");
@@ -38,94 +95,124 @@ public final class Writer {
     writeCharacter(':');
     writeString("source." + written.extension());
 
-    var topLevelIterator = written.topLevel().iterator();
-    if (topLevelIterator.hasNext()) {
+    if (written.topLevelSize() != 0) {
       writeCharacter(',');
       writeString("patterns");
       writeCharacter(':');
       writeCharacter('[');
-      accessObject(topLevelIterator.next());
-      while (topLevelIterator.hasNext()) {
+      topLevelObject(0);
+      for (var i = 1; i < written.topLevelSize(); i++) {
         writeCharacter(',');
-        accessObject(topLevelIterator.next());
+        topLevelObject(i);
       }
       writeCharacter(']');
     }
 
-    var repositoryIterator = written.repository().entrySet().iterator();
-    if (repositoryIterator.hasNext()) {
+    if (written.repositorySize() != 0) {
       writeCharacter(',');
       writeString("repository");
       writeCharacter(':');
       writeCharacter('{');
-      defineObject(repositoryIterator.next());
-      while (repositoryIterator.hasNext()) {
+      defineObject(0);
+      for (var i = 1; i < written.repositorySize(); i++) {
         writeCharacter(',');
-        defineObject(repositoryIterator.next());
+        defineObject(i);
       }
       writeCharacter('}');
     }
 
     writeCharacter('}');
+    var flushStart = System.nanoTime();
+    listener.phase(Listener.Phase.EMISSION, flushStart - start);
     try {
       output.flush();
     } catch (IOException exception) {
       throw new RuntimeException(exception);
     }
+    listener.phase(Listener.Phase.FLUSH, System.nanoTime() - flushStart);
+    for (var include : includes.entrySet())
+      listener.include(include.getKey(), include.getValue());
   }
 
-  private void defineObject(Entry<Rule, String> namedRule) {
-    writeString(namedRule.getValue());
-    writeCharacter(':');
-    object(namedRule.getKey());
+  private Rule rule(int rule) {
+    return records == null ? null : records.rule(rule);
+  }
+
+  private Pattern pattern(int pattern) {
+    return records == null ? null : records.pattern(pattern);
+  }
+
+  private void topLevelObject(int index) {
+    var before = emitted;
+    var rule   = written.topLevelRule(index);
+    entry = "#" + index;
+    accessObject(rule);
+    listener.topLevel(index, rule(rule), emitted - before);
   }
 
-  private void accessObject(Rule rule) {
-    if (!written.repository().containsKey(rule)) {
-      if (rule.data().scope().isEmpty()
-        && rule instanceof Unconditional ruleAsUnconditional) {
-        accessObject(rule.data().inner().get(0));
-        for (var i = 1; i < rule.data().inner().size(); i++) {
-          writeCharacter(',');
-          accessObject(rule.data().inner().get(i));
+  private void defineObject(int index) {
+    var before = emitted;
+    var name   = written.repositoryName(index);
+    var rule   = written.repositoryRule(index);
+    entry = name;
+    writeString(name);
+    writeCharacter(':');
+    object(rule);
+    listener.repository(name, rule(rule), emitted - before);
+  }
+
+  private void accessObject(int rule) {
+    var name = names[rule];
+    if (name == null) {
+      if (written.kind(rule) == UNCONDITIONAL && written.scope(rule) == null) {
+        var inner = written.innerStart(rule);
+        for (var i = inner; i < written.size(rule); i++) {
+          if (i != inner) writeCharacter(',');
+          accessObject(written.operand(rule, i));
         }
       } else {
         object(rule);
       }
       return;
     }
+    includes.put(name, includes.get(name) + 1);
     writeCharacter('{');
     writeString("include");
     writeCharacter(':');
-    writeString('#' + written.repository().get(rule));
+    writeString('#' + name);
     writeCharacter('}');
   }
 
-  private void object(Rule rule) {
+  private void object(int rule) {
     objectStart = true;
     writeCharacter('{');
-    if (rule.data().scope().isPresent()) {
+    var scope = written.scope(rule);
+    if (scope != null) {
       objectSeparate();
 
       writeString("name");
       writeCharacter(':');
-      writeString(rule.data().scope().get() + '.' + written.extension());
+      writeString(scope + '.' + written.extension());
     }
-    switch (rule) {
-    case Unconditional unconditional -> objectUnconditional();
-    case Conditional conditional -> objectConditional(conditional);
-    case Delimitated delimitated -> objectDelimitated(delimitated);
+    switch (written.kind(rule)) {
+    case UNCONDITIONAL -> objectUnconditional();
+    case CONDITIONAL -> objectConditional(rule);
+    case DELIMITATED -> objectDelimitated(rule);
+    default -> throw new RuntimeException(
+      "Node [%d] of kind [%d] is not a rule!".formatted(rule,
+        written.kind(rule)));
     }
-    if (!rule.data().inner().isEmpty()) {
+    var inner = written.innerStart(rule);
+    if (inner != written.size(rule)) {
       objectSeparate();
 
       writeString("patterns");
       writeCharacter(':');
       writeCharacter('[');
-      accessObject(rule.data().inner().get(0));
-      for (var i = 1; i < rule.data().inner().size(); i++) {
+      accessObject(written.operand(rule, inner));
+      for (var i = inner + 1; i < written.size(rule); i++) {
         writeCharacter(',');
-        accessObject(rule.data().inner().get(i));
+        accessObject(written.operand(rule, i));
       }
       writeCharacter(']');
     }
@@ -134,17 +221,20 @@ public final class Writer {
 
   private void objectUnconditional() {}
 
-  private void objectConditional(Conditional conditional) {
-    objectPattern("match", "captures", conditional.condition());
+  private void objectConditional(int conditional) {
+    objectPattern(conditional, "match", "captures",
+      written.operand(conditional, 1));
   }
 
-  private void objectDelimitated(Delimitated delimitated) {
-    objectPattern("begin", "beginCaptures", delimitated.initializer());
-    objectPattern("end", "endCaptures", delimitated.terminator());
+  private void objectDelimitated(int delimitated) {
+    objectPattern(delimitated, "begin", "beginCaptures",
+      written.operand(delimitated, 1));
+    objectPattern(delimitated, "end", "endCaptures",
+      written.operand(delimitated, 2));
   }
 
-  private void objectPattern(String name, String capturesName,
-    Pattern pattern) {
+  private void objectPattern(int rule, String name, String capturesName,
+    int pattern) {
     captures = new ArrayList<>();
 
     objectSeparate();
@@ -152,7 +242,10 @@ public final class Writer {
     writeString(name);
     writeCharacter(':');
     writeCharacter('"');
+    var before = emitted;
     regex(pattern);
+    listener.pattern(entry, rule(rule), name, pattern(pattern),
+      emitted - before, depth(pattern), captures.size());
     writeCharacter('"');
 
     if (captures.isEmpty()) return;
@@ -168,25 +261,39 @@ public final class Writer {
     writeCharacter('}');
   }
 
+  private int depth(int pattern) {
+    return 1 + switch (written.kind(pattern)) {
+    case OR, AND -> {
+      var result = 0;
+      for (var i = 0; i < written.size(pattern); i++)
+        result = Math.max(result, depth(written.operand(pattern, i)));
+      yield result;
+    }
+    case REPEAT, INFINITE_REPEAT, LOOKUP, CAPTURE ->
+      depth(written.operand(pattern, 0));
+    default -> 0;
+    };
+  }
+
   private void objectSeparate() {
     if (!objectStart) writeCharacter(',');
     objectStart = false;
   }
 
-  private void objectCapture(int index, Rule captured) {
+  private void objectCapture(int index, int captured) {
     writeString(String.valueOf(index));
     writeCharacter(':');
     object(captured);
   }
 
-  private void unitRegex(Pattern pattern) {
-    if ((pattern instanceof Or patternAsOr
-      && surveyOr(patternAsOr) == Survey.OTHER) || pattern instanceof And)
+  private void unitRegex(int pattern) {
+    var kind = written.kind(pattern);
+    if ((kind == OR && surveyOr(pattern) == Survey.OTHER) || kind == AND)
       unitRegexSurround(pattern);
     else regex(pattern);
   }
 
-  private void unitRegexSurround(Pattern surrounded) {
+  private void unitRegexSurround(int surrounded) {
     writeEscaped('(');
     writeEscaped('?');
     writeEscaped(':');
@@ -194,58 +301,62 @@ public final class Writer {
     writeEscaped(')');
   }
 
-  private void regex(Pattern pattern) {
-    switch (pattern) {
-    case One one -> regexOne(one);
-    case NotOne notOne -> regexNotOne(notOne);
-    case Range range -> regexRange(range);
-    case NotRange notRange -> regexNotRange(notRange);
-    case Any any -> regexAny();
-    case All all -> regexAll(all);
-    case Start start -> regexStart();
-    case End end -> regexEnd();
-    case Or or -> regexOr(or);
-    case And and -> regexAnd(and);
-    case Repeat repeat -> regexRepeat(repeat);
-    case InfiniteRepeat infiniteRepeat -> regexInfiniteRepeat(infiniteRepeat);
-    case Lookup lookup -> regexLookup(lookup);
-    case Capture capture -> regexCapture(capture);
+  private void regex(int pattern) {
+    switch (written.kind(pattern)) {
+    case ONE -> regexOne(pattern);
+    case NOT_ONE -> regexNotOne(pattern);
+    case RANGE -> regexRange(pattern);
+    case NOT_RANGE -> regexNotRange(pattern);
+    case ANY -> regexAny();
+    case ALL -> regexAll(pattern);
+    case START -> regexStart();
+    case END -> regexEnd();
+    case OR -> regexOr(pattern);
+    case AND -> regexAnd(pattern);
+    case REPEAT -> regexRepeat(pattern);
+    case INFINITE_REPEAT -> regexInfiniteRepeat(pattern);
+    case LOOKUP -> regexLookup(pattern);
+    case CAPTURE -> regexCapture(pattern);
+    default -> throw new RuntimeException(
+      "Node [%d] of kind [%d] is not a pattern!".formatted(pattern,
+        written.kind(pattern)));
     }
   }
 
-  private void regexOne(One one) {
-    if (one.set().length() == 1) {
-      regexLiteral(one.set());
+  private void regexOne(int one) {
+    var set = written.string(one, 0);
+    if (set.length() == 1) {
+      regexLiteral(set);
     } else {
-      writeEscaped('[');
-      regexSet(one.set());
+      writeSetStart(false);
+      regexSet(set);
       writeEscaped(']');
     }
   }
 
-  private void regexNotOne(NotOne notOne) {
-    writeEscaped('[');
-    writeEscaped('^');
-    regexSet(notOne.set());
+  private void regexNotOne(int notOne) {
+    writeSetStart(true);
+    regexSet(written.string(notOne, 0));
     writeEscaped(']');
   }
 
-  private void regexRange(Range range) {
-    writeEscaped('[');
-    regexRange(range.first(), range.last());
+  private void regexRange(int range) {
+    writeSetStart(false);
+    regexRange((char) written.operand(range, 0),
+      (char) written.operand(range, 1));
     writeEscaped(']');
   }
 
-  private void regexNotRange(NotRange notRange) {
-    writeEscaped('[');
-    writeEscaped('^');
-    regexRange(notRange.first(), notRange.last());
+  private void regexNotRange(int notRange) {
+    writeSetStart(true);
+    regexRange((char) written.operand(notRange, 0),
+      (char) written.operand(notRange, 1));
     writeEscaped(']');
   }
 
   private void regexAny() { writeEscaped('.'); }
 
-  private void regexAll(All all) { regexLiteral(all.characters()); }
+  private void regexAll(int all) { regexLiteral(written.string(all, 0)); }
 
   private void regexStart() { writeEscaped('^'); }
 
@@ -255,91 +366,97 @@ public final class Writer {
     SETS, NOT_SETS, OTHER;
   }
 
-  private void regexOr(Or or) {
+  private void regexOr(int or) {
     var survey = surveyOr(or);
 
     switch (survey) {
     case SETS:
-      writeEscaped('[');
+      writeSetStart(false);
       regexOrSets(or);
       writeEscaped(']');
       break;
     case NOT_SETS:
-      writeEscaped('[');
-      writeEscaped('^');
+      writeSetStart(true);
       regexOrNotSets(or);
       writeEscaped(']');
       break;
     default:
-      regexOrAlternative(or.alternatives().get(0));
-      for (var i = 1; i < or.alternatives().size(); i++) {
+      regexOrAlternative(written.operand(or, 0));
+      for (var i = 1; i < written.size(or); i++) {
         writeEscaped('|');
-        regexOrAlternative(or.alternatives().get(i));
+        regexOrAlternative(written.operand(or, i));
       }
     }
   }
 
-  private void regexOrSets(Or or) {
-    for (var alternative : or.alternatives()) {
-      switch (alternative) {
-      case One one -> regexSet(one.set());
-      case Range range -> regexRange(range.first(), range.last());
-      case Or nestedOr -> regexOrSets(nestedOr);
-      default ->
-        throw new RuntimeException("Pattern type `%s` is not One or Range!"
-          .formatted(alternative.getClass().getSimpleName()));
+  private void regexOrSets(int or) {
+    for (var i = 0; i < written.size(or); i++) {
+      var alternative = written.operand(or, i);
+      switch (written.kind(alternative)) {
+      case ONE -> regexSet(written.string(alternative, 0));
+      case RANGE -> regexRange((char) written.operand(alternative, 0),
+        (char) written.operand(alternative, 1));
+      case OR -> regexOrSets(alternative);
+      default -> throw new RuntimeException(
+        "Node [%d] of kind [%d] is not One or Range!".formatted(alternative,
+          written.kind(alternative)));
       }
     }
   }
 
-  private void regexOrNotSets(Or or) {
-    for (var alternative : or.alternatives()) {
-      switch (alternative) {
-      case NotOne notOne -> regexSet(notOne.set());
-      case NotRange notRange -> regexRange(notRange.first(), notRange.last());
-      case Or nestedOr -> regexOrNotSets(nestedOr);
+  private void regexOrNotSets(int or) {
+    for (var i = 0; i < written.size(or); i++) {
+      var alternative = written.operand(or, i);
+      switch (written.kind(alternative)) {
+      case NOT_ONE -> regexSet(written.string(alternative, 0));
+      case NOT_RANGE -> regexRange((char) written.operand(alternative, 0),
+        (char) written.operand(alternative, 1));
+      case OR -> regexOrNotSets(alternative);
       default -> throw new RuntimeException(
-        "Pattern type `%s` is not NotOne or NotRange!"
-          .formatted(alternative.getClass().getSimpleName()));
+        "Node [%d] of kind [%d] is not NotOne or NotRange!".formatted(
+          alternative, written.kind(alternative)));
       }
     }
   }
 
-  private void regexOrAlternative(Pattern alternative) {
-    if (alternative instanceof Or alternativeAsOr) regexOr(alternativeAsOr);
+  private void regexOrAlternative(int alternative) {
+    var kind = written.kind(alternative);
+    if (kind == OR) regexOr(alternative);
+    else if (emission == Emission.MINIMAL && kind == AND)
+      regexAnd(alternative);
     else unitRegex(alternative);
   }
 
-  private Survey surveyOr(Or or) {
+  private Survey surveyOr(int or) {
     var result = Survey.OTHER;
 
-    for (var alternative : or.alternatives()) {
+    for (var i = 0; i < written.size(or); i++) {
+      var alternative = written.operand(or, i);
+      var kind        = written.kind(alternative);
       switch (result) {
       case SETS:
-        if (alternative instanceof One || alternative instanceof Range
-          || (alternative instanceof Or alternativeAsOr
-            && surveyOr(alternativeAsOr) == Survey.SETS))
+        if (kind == ONE || kind == RANGE
+          || (kind == OR && surveyOr(alternative) == Survey.SETS))
           continue;
         break;
 
       case NOT_SETS:
-        if (alternative instanceof NotOne || alternative instanceof NotRange
-          || (alternative instanceof Or alternativeAsOr
-            && surveyOr(alternativeAsOr) == Survey.NOT_SETS))
+        if (kind == NOT_ONE || kind == NOT_RANGE
+          || (kind == OR && surveyOr(alternative) == Survey.NOT_SETS))
           continue;
         break;
 
       default:
-        if (alternative instanceof One || alternative instanceof Range) {
+        if (kind == ONE || kind == RANGE) {
           result = Survey.SETS;
           continue;
         }
-        if (alternative instanceof NotOne || alternative instanceof NotRange) {
+        if (kind == NOT_ONE || kind == NOT_RANGE) {
           result = Survey.NOT_SETS;
           continue;
         }
-        if (alternative instanceof Or alternativeAsOr) {
-          result = surveyOr(alternativeAsOr);
+        if (kind == OR) {
+          result = surveyOr(alternative);
           if (result != Survey.OTHER) continue;
         }
       }
@@ -350,28 +467,39 @@ public final class Writer {
     return result;
   }
 
-  private void regexAnd(And and) {
-    for (var sequent : and.sequence())
-      if (sequent instanceof And sequentAsAnd) regexAnd(sequentAsAnd);
+  private void regexAnd(int and) {
+    for (var i = 0; i < written.size(and); i++) {
+      var sequent = written.operand(and, i);
+      if (written.kind(sequent) == AND) regexAnd(sequent);
       else unitRegex(sequent);
+    }
   }
 
-  private void regexRepeat(Repeat repeat) {
-    unitRegex(repeat.repeated());
-    if (repeat.minimum() == 0 && repeat.maximum() == 1) {
+  private void regexRepeat(int repeat) {
+    var minimum = written.operand(repeat, 1);
+    var maximum = written.operand(repeat, 2);
+    unitRegex(written.operand(repeat, 0));
+    if (minimum == 0 && maximum == 1) {
       writeEscaped('?');
       return;
     }
+    if (emission == Emission.MINIMAL && minimum == maximum) {
+      if (minimum == 1) return;
+      writeEscaped('{');
+      writeNumber(minimum);
+      writeEscaped('}');
+      return;
+    }
     writeEscaped('{');
-    writeNumber(repeat.minimum());
+    writeNumber(minimum);
     writeEscaped(',');
-    writeNumber(repeat.maximum());
+    writeNumber(maximum);
     writeEscaped('}');
   }
 
-  private void regexInfiniteRepeat(InfiniteRepeat infiniteRepeat) {
-    unitRegex(infiniteRepeat.repeated());
-    switch (infiniteRepeat.minimum()) {
+  private void regexInfiniteRepeat(int infiniteRepeat) {
+    unitRegex(written.operand(infiniteRepeat, 0));
+    switch (written.operand(infiniteRepeat, 1)) {
     case 0:
       writeEscaped('*');
       break;
@@ -380,26 +508,27 @@ public final class Writer {
       break;
     default:
       writeEscaped('{');
-      writeNumber(infiniteRepeat.minimum());
+      writeNumber(written.operand(infiniteRepeat, 1));
       writeEscaped(',');
       writeEscaped('}');
     }
   }
 
-  private void regexLookup(Lookup lookup) {
+  private void regexLookup(int lookup) {
+    var flags = written.operand(lookup, 1);
     writeEscaped('(');
     writeEscaped('?');
-    if (lookup.behind()) writeEscaped('<');
-    writeEscaped(lookup.wanted() ? '=' : '!');
-    regex(lookup.looked());
+    if ((flags & LOOKUP_BEHIND) != 0) writeEscaped('<');
+    writeEscaped((flags & LOOKUP_WANTED) != 0 ? '=' : '!');
+    regex(written.operand(lookup, 0));
     writeEscaped(')');
   }
 
-  private void regexCapture(Capture capture) {
+  private void regexCapture(int capture) {
     writeEscaped('(');
-    regex(capture.pattern());
+    regex(written.operand(capture, 0));
     writeEscaped(')');
-    captures.add(capture.rule());
+    captures.add(written.operand(capture, 1));
   }
 
   private void regexSet(String set) {
@@ -413,6 +542,24 @@ public final class Writer {
   }
 
   private void regexMember(char member) {
+    var first = setStart;
+    setStart = false;
+    if (emission == Emission.MINIMAL) {
+      switch (member) {
+      case '^':
+        if (first) writeEscaped('\\');
+        break;
+      case '-':
+        if (!first) writeEscaped('\\');
+        break;
+      case '\\', '[', ']':
+        writeEscaped('\\');
+        break;
+      default:
+      }
+      writeEscaped(member);
+      return;
+    }
     switch (member) {
     case '\\', '^', '[', ']', '-':
       writeEscaped('\\');
@@ -427,6 +574,16 @@ public final class Writer {
   }
 
   private void regexCharacter(char character) {
+    if (emission == Emission.MINIMAL) {
+      switch (character) {
+      case '\\', '^', '$', '[', ']', '(', ')', '{', '.', '+', '*', '?':
+        writeEscaped('\\');
+        // $FALL-THROUGH$
+      default:
+        writeEscaped(character);
+      }
+      return;
+    }
     switch (character) {
     case '\\', '^', '$', '[', ']', '(', ')', '{', '}', '.', '+', '*', '?', '!':
       writeEscaped('\\');
@@ -436,9 +593,17 @@ public final class Writer {
     }
   }
 
+  private void writeSetStart(boolean negated) {
+    writeEscaped('[');
+    if (negated) writeEscaped('^');
+    setStart = true;
+  }
+
   private void writeNumber(int number) {
     try {
-      output.write(String.valueOf(number));
+      var digits = String.valueOf(number);
+      output.write(digits);
+      emitted += digits.length();
     } catch (IOException exception) {
       throw new RuntimeException(exception);
     }
@@ -449,9 +614,11 @@ public final class Writer {
       switch (escaped) {
       case '\\', '"':
         output.write('\\');
+        emitted++;
         // $FALL-THROUGH$
       default:
         output.write(escaped);
+        emitted++;
       }
     } catch (IOException exception) {
       throw new RuntimeException(exception);
@@ -463,6 +630,7 @@ public final class Writer {
       output.write('"');
       output.write(string);
       output.write('"');
+      emitted += string.length() + 2;
     } catch (IOException exception) {
       throw new RuntimeException(exception);
     }
@@ -471,6 +639,7 @@ public final class Writer {
   private void writeCharacter(char character) {
     try {
       output.write(character);
+      emitted++;
     } catch (IOException exception) {
       throw new RuntimeException(exception);
     }
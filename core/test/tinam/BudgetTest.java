@@ -0,0 +1,114 @@
+package tinam;
+
+import static tinam.Rule.*;
+import static tinam.Pattern.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+public final class BudgetTest {
+  public static void main(String[] arguments) throws InterruptedException {
+    var failure = new Throwable[1];
+    var thread  = new Thread(null, BudgetTest::run, "budget-test", STACK);
+    thread.setUncaughtExceptionHandler(
+      (failed, exception) -> failure[0] = exception);
+    thread.start();
+    thread.join();
+    if (failure[0] != null)
+      throw new RuntimeException("Budget test failed!", failure[0]);
+    System.out.println("Budget test passed.");
+  }
+
+  private static final int    STACK  = 1 << 19;
+  private static final int    LENGTH = 50_000;
+  private static final Budget BUDGET = Budget.of(10_000, 50_000_000);
+
+  private BudgetTest() {}
+
+  private static void run() {
+    var digit = range('0', '9');
+    tokenize("digits", and(digit, zeroOrMore(and(optional(one("'")), digit))),
+      "1".repeat(LENGTH), false);
+    tokenize("ambiguous repeat",
+      and(zeroOrMore(or(all("a"), all("aa"))), all("b")), "a".repeat(LENGTH),
+      true);
+    var sequence = new ArrayList<Pattern>(LENGTH);
+    for (var i = 0; i < LENGTH; i++) sequence.add(one("ab"));
+    var deep = and(Collections.unmodifiableList(sequence));
+    tokenize("deep sequence", deep, "a".repeat(LENGTH), true);
+    tokenize("time budget", Budget.of(Long.MAX_VALUE, 1), digit,
+      "1".repeat(LENGTH), true);
+
+    var tokenizer = Tokenizer.of(grammar(
+      and(zeroOrMore(or(all("a"), deep)), all("!"))), BUDGET);
+    var session   = tokenizer.session();
+    whole("repeat before an overflow", tokenizer, session, "a!");
+    tokenize("overflowing repeat", tokenizer, session,
+      "a".repeat(LENGTH + 10_000), true);
+    whole("repeat after an overflow", tokenizer, session, "a!");
+  }
+
+  private static Grammar grammar(Pattern pattern) {
+    return Grammar.of("Test", "test",
+      List.of(conditional(scoped("test"), pattern)), Map.of());
+  }
+
+  private static void whole(String name, Tokenizer tokenizer,
+    Tokenizer.Session session, String line) {
+    var tokens = new ArrayList<String>();
+    session.tokenize(line, tokenizer.initial(),
+      (start, end, scopes) -> tokens.add(
+      "[%d,%d) %s".formatted(start, end, scopes.get(scopes.size() - 1))));
+    if (tokens.size() != 1 || !tokens.get(0).startsWith(
+      "[0,%d) test".formatted(line.length())))
+      throw new RuntimeException("Line of `%s` gave the tokens `%s`!"
+        .formatted(name, tokens));
+  }
+
+  private static void tokenize(String name, Pattern pattern, String line,
+    boolean exhausts) {
+    tokenize(name, BUDGET, pattern, line, exhausts);
+  }
+
+  private static void tokenize(String name, Budget budget, Pattern pattern,
+    String line, boolean exhausts) {
+    var tokenizer = Tokenizer.of(grammar(pattern), budget);
+    tokenize(name, tokenizer, tokenizer.session(), line, exhausts);
+  }
+
+  private static void tokenize(String name, Tokenizer tokenizer,
+    Tokenizer.Session session, String line, boolean exhausts) {
+    var covered   = new int[1];
+    var exhausted = new boolean[1];
+    var start     = System.nanoTime();
+    var state     = session.tokenize(line, tokenizer.initial(),
+      new Tokenizer.Tokens() {
+        @Override
+        public void token(int start, int end, List<String> scopes) {
+          if (start != covered[0]) throw new RuntimeException(
+            "Token of `%s` starts at [%d] instead of [%d]!".formatted(name,
+              start, covered[0]));
+          covered[0] = end;
+        }
+
+        @Override
+        public void exhausted(Rule rule, int at) {
+          if (rule == null) throw new RuntimeException(
+            "Line of `%s` exhausted without a rule!".formatted(name));
+          exhausted[0] = true;
+        }
+      });
+    var elapsed   = System.nanoTime() - start;
+    if (state != tokenizer.initial() || covered[0] != line.length())
+      throw new RuntimeException(
+        "Tokens of `%s` cover [%d] of [%d] characters!".formatted(name,
+          covered[0], line.length()));
+    if (exhausts && !exhausted[0]) throw new RuntimeException(
+      "Line of `%s` did not exhaust the budget!".formatted(name));
+    if (elapsed > BUDGET.nanoseconds() * 20) throw new RuntimeException(
+      "Line of `%s` took [%d ms] under a [%d ms] budget!".formatted(name,
+        elapsed / 1_000_000, BUDGET.nanoseconds() / 1_000_000));
+  }
+}
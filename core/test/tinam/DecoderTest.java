@@ -0,0 +1,76 @@
+package tinam;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
+public final class DecoderTest {
+  public static void main(String[] arguments) throws IOException {
+    var root    = Path.of(arguments.length == 0 ? "." : arguments[0]);
+    var encoded = Files.readAllBytes(root.resolve(ENCODED));
+    var written = Files.readAllBytes(root.resolve(WRITTEN));
+
+    var decoded = Decoder.load(root.resolve(ENCODED));
+    if (!Arrays.equals(write(decoded), written)) throw new RuntimeException(
+      "Decoded `%s` is not written as `%s`!".formatted(ENCODED, WRITTEN));
+    if (!Arrays.equals(encode(decoded), encoded)) throw new RuntimeException(
+      "Decoded `%s` is not encoded back to the same bytes!"
+        .formatted(ENCODED));
+    var reencoded = Decoder.decode(ByteBuffer.wrap(encode(decoded)));
+    if (!reencoded.equals(decoded)) throw new RuntimeException(
+      "Encoded `%s` does not decode to the same grammar!".formatted(ENCODED));
+
+    for (var length = 0; length < encoded.length; length++) {
+      var name = "truncated to [%d] bytes".formatted(length);
+      if (decodes(name, ByteBuffer.wrap(encoded, 0, length)))
+        throw new RuntimeException(
+          "Decoding `%s` %s did not fail!".formatted(ENCODED, name));
+    }
+    var random = new Random(0);
+    for (var i = 0; i < CORRUPTIONS; i++) {
+      var corrupted = encoded.clone();
+      var at        = random.nextInt(corrupted.length);
+      corrupted[at] = (byte) random.nextInt(256);
+      decodes("with byte [%d] set to [%d]".formatted(at, corrupted[at]),
+        ByteBuffer.wrap(corrupted));
+    }
+    System.out.println("Decoder test passed.");
+  }
+
+  private static final String ENCODED     = "thrice.grammar";
+  private static final String WRITTEN     = "thrice.tmLanguage.json";
+  private static final int    CORRUPTIONS = 20_000;
+
+  private DecoderTest() {}
+
+  private static byte[] write(Grammar grammar) {
+    var bytes = new ByteArrayOutputStream();
+    Writer.write(new OutputStreamWriter(bytes, StandardCharsets.UTF_8),
+      grammar);
+    return bytes.toByteArray();
+  }
+
+  private static byte[] encode(Grammar grammar) {
+    var bytes = new ByteArrayOutputStream();
+    Encoder.encode(bytes, grammar);
+    return bytes.toByteArray();
+  }
+
+  private static boolean decodes(String name, ByteBuffer input) {
+    try {
+      Decoder.decode(input);
+      return true;
+    } catch (RuntimeException exception) {
+      if (exception.getClass() != RuntimeException.class)
+        throw new RuntimeException("Decoding `%s` %s failed with `%s`!"
+          .formatted(ENCODED, name, exception), exception);
+      return false;
+    }
+  }
+}
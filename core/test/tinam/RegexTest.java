@@ -0,0 +1,167 @@
+package tinam;
+
+import static tinam.Pattern.*;
+
+import java.util.List;
+import java.util.Random;
+
+import tinam.Pattern.*;
+
+public final class RegexTest {
+  public static void main(String[] arguments) {
+    check(zeroOrMore(or(optional(all("x")), all("a"))), "a");
+    check(zeroOrMore(or(notBefore(all("c")), all("a"))), "a");
+    check(optional(or(optional(all("ab")), all("c"),
+      oneOrMore(range('a', 'b')))), "b");
+    check(oneOrMore(any()), "\nab\nc");
+    check(or(and(any(), all("b")), notOne("a")), "a\nb");
+    check(and(after(and(all("a"), optional(all("b")))), all("c")), "abc");
+    for (var seed = 0; seed < PATTERNS; seed++) {
+      var random  = new Random(seed);
+      var pattern = pattern(random, DEPTH, true);
+      for (var i = 0; i < INPUTS; i++) check(pattern, input(random));
+    }
+    System.out.println("Regex test passed.");
+  }
+
+  private static final int    PATTERNS = 20_000;
+  private static final int    INPUTS   = 20;
+  private static final int    DEPTH    = 4;
+  private static final String LETTERS  = "abc";
+  private static final Rule   RULE     =
+    Rule.unconditional(Rule.scoped("test"));
+
+  private RegexTest() {}
+
+  private static void check(Pattern pattern, String input) {
+    var regex    = regex(pattern);
+    var expected = java.util.regex.Pattern.compile(regex).matcher(input);
+    var wanted   = expected.find()
+      ? expected.start() + "-" + expected.end()
+      : "none";
+    for (var matcher : List.of(Matcher.interpreted(pattern),
+      Matcher.compiled(pattern))) {
+      var match = matcher.newMatch().reset(input);
+      var found = matcher.find(match, 0)
+        ? match.start() + "-" + match.end()
+        : "none";
+      if (!found.equals(wanted)) throw new RuntimeException(
+        "Regex `%s` matched `%s` at [%s] instead of [%s] in `%s`!".formatted(
+          regex, input, found, wanted, matcher.getClass().getSimpleName()));
+    }
+  }
+
+  private static Pattern pattern(Random random, int depth,
+    boolean quantified) {
+    var kinds = depth == 0 ? 6 : quantified ? 14 : 10;
+    return switch (random.nextInt(kinds)) {
+    case 0 -> one(random.nextBoolean() ? "a" : "ab");
+    case 1 -> all(random.nextBoolean() ? "a" : "ab");
+    case 2 -> random.nextBoolean() ? range('a', 'b') : notRange('a', 'b');
+    case 3 -> notOne("a");
+    case 4 -> any();
+    case 5 -> random.nextBoolean() ? start() : end();
+    case 6 -> or(pattern(random, depth - 1, quantified),
+      pattern(random, depth - 1, quantified));
+    case 7 -> and(pattern(random, depth - 1, quantified),
+      pattern(random, depth - 1, quantified));
+    case 8 -> capture(pattern(random, depth - 1, quantified), RULE);
+    case 9 -> lookup(random);
+    case 10 -> optional(pattern(random, depth - 1, false));
+    case 11 -> zeroOrMore(pattern(random, depth - 1, false));
+    case 12 -> {
+      var repeated = pattern(random, depth - 1, false);
+      yield empty(repeated) ? zeroOrMore(repeated) : oneOrMore(repeated);
+    }
+    default -> {
+      var repeated = pattern(random, depth - 1, false);
+      var minimum  = empty(repeated) ? 0 : random.nextInt(3);
+      var maximum  = Math.max(1, minimum) + random.nextInt(3);
+      yield repeat(repeated, minimum, maximum);
+    }
+    };
+  }
+
+  private static boolean empty(Pattern pattern) {
+    return switch (pattern) {
+    case One one -> false;
+    case NotOne notOne -> false;
+    case Range range -> false;
+    case NotRange notRange -> false;
+    case Any any -> false;
+    case All all -> all.characters().isEmpty();
+    case Start start -> true;
+    case End end -> true;
+    case Or or -> {
+      for (var alternative : or.alternatives())
+        if (empty(alternative)) yield true;
+      yield false;
+    }
+    case And and -> {
+      for (var sequent : and.sequence()) if (!empty(sequent)) yield false;
+      yield true;
+    }
+    case Repeat repeat -> repeat.minimum() == 0 || empty(repeat.repeated());
+    case InfiniteRepeat infiniteRepeat ->
+      infiniteRepeat.minimum() == 0 || empty(infiniteRepeat.repeated());
+    case Lookup lookup -> true;
+    case Capture capture -> empty(capture.pattern());
+    };
+  }
+
+  private static Pattern lookup(Random random) {
+    var looked = switch (random.nextInt(3)) {
+    case 0 -> all("a");
+    case 1 -> or(all("a"), all("bb"));
+    default -> and(or(all("a"), all("bc")), optional(all("a")));
+    };
+    return switch (random.nextInt(4)) {
+    case 0 -> after(looked);
+    case 1 -> notAfter(looked);
+    case 2 -> before(looked);
+    default -> notBefore(looked);
+    };
+  }
+
+  private static String input(Random random) {
+    var input = new StringBuilder();
+    for (var i = random.nextInt(8); i > 0; i--)
+      input.append(LETTERS.charAt(random.nextInt(LETTERS.length())));
+    return input.toString();
+  }
+
+  private static String regex(Pattern pattern) {
+    return switch (pattern) {
+    case One one -> "[" + one.set() + "]";
+    case NotOne notOne -> "[^" + notOne.set() + "]";
+    case Range range -> "[" + range.first() + "-" + range.last() + "]";
+    case NotRange notRange ->
+      "[^" + notRange.first() + "-" + notRange.last() + "]";
+    case Any any -> ".";
+    case All all -> "(?:" + all.characters() + ")";
+    case Start start -> "^";
+    case End end -> "$";
+    case Or or -> {
+      var alternatives = new StringBuilder();
+      for (var alternative : or.alternatives()) {
+        if (!alternatives.isEmpty()) alternatives.append('|');
+        alternatives.append(regex(alternative));
+      }
+      yield "(?:" + alternatives + ")";
+    }
+    case And and -> {
+      var sequence = new StringBuilder();
+      for (var sequent : and.sequence()) sequence.append(regex(sequent));
+      yield "(?:" + sequence + ")";
+    }
+    case Repeat repeat -> "(?:" + regex(repeat.repeated()) + "){"
+      + repeat.minimum() + "," + repeat.maximum() + "}";
+    case InfiniteRepeat infiniteRepeat ->
+      "(?:" + regex(infiniteRepeat.repeated()) + "){"
+        + infiniteRepeat.minimum() + ",}";
+    case Lookup lookup -> "(?" + (lookup.behind() ? "<" : "")
+      + (lookup.wanted() ? "=" : "!") + regex(lookup.looked()) + ")";
+    case Capture capture -> "(" + regex(capture.pattern()) + ")";
+    };
+  }
+}
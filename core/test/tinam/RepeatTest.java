@@ -0,0 +1,62 @@
+package tinam;
+
+import static tinam.Pattern.*;
+
+import java.util.List;
+
+public final class RepeatTest {
+  public static void main(String[] arguments) throws InterruptedException {
+    var failure = new Throwable[1];
+    var thread  = new Thread(null, RepeatTest::run, "repeat-test", STACK);
+    thread.setUncaughtExceptionHandler(
+      (failed, exception) -> failure[0] = exception);
+    thread.start();
+    thread.join();
+    if (failure[0] != null)
+      throw new RuntimeException("Repeat test failed!", failure[0]);
+    System.out.println("Repeat test passed.");
+  }
+
+  private static final int  STACK  = 1 << 19;
+  private static final int  LENGTH = 100_000;
+  private static final Rule RULE   = Rule.unconditional(Rule.scoped("test"));
+
+  private RepeatTest() {}
+
+  private static void run() {
+    var digit = range('0', '9');
+    check("separated digits",
+      and(digit, zeroOrMore(and(optional(one("'")), digit))),
+      "1'2".repeat(LENGTH / 3) + "4", LENGTH / 3 * 3 + 1);
+    check("backtracking into the body",
+      and(zeroOrMore(or(all("a"), all("ab"))), all("c")),
+      "ab".repeat(LENGTH / 2) + "c", LENGTH + 1);
+    check("bounded repeat", repeat(all("xy"), 0, LENGTH / 4),
+      "xy".repeat(LENGTH / 2), LENGTH / 2);
+
+    var captured = zeroOrMore(capture(or(all("ab"), all("a")), RULE));
+    var input    = "ab".repeat(LENGTH / 2) + "a";
+    for (var matcher : matchers(captured)) {
+      var match = matcher.newMatch().reset(input);
+      if (!matcher.match(match, 0) || match.end() != input.length()
+        || match.start(1) != input.length() - 1
+        || match.end(1) != input.length())
+        throw new RuntimeException(
+          "Captured repeat did not keep its last iteration!");
+    }
+  }
+
+  private static void check(String name, Pattern pattern, String input,
+    int end) {
+    for (var matcher : matchers(pattern)) {
+      var match = matcher.newMatch().reset(input);
+      if (!matcher.match(match, 0) || match.end() != end)
+        throw new RuntimeException("Repeat `%s` ended at [%d] instead of [%d]!"
+          .formatted(name, match.end(), end));
+    }
+  }
+
+  private static List<Matcher> matchers(Pattern pattern) {
+    return List.of(Matcher.interpreted(pattern), Matcher.compiled(pattern));
+  }
+}
@@ -1 +1,5 @@
-module thrice.tinam { requires tinam; }
+module thrice.tinam {
+  requires tinam;
+  requires jdk.jfr;
+  provides tinam.Provider with thrice.tinam.Generator;
+}
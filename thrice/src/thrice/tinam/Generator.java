@@ -3,8 +3,13 @@ package thrice.tinam;
 import static tinam.Rule.*;
 import static tinam.Pattern.*;
 
+import tinam.Eliminator;
+import tinam.Encoder;
+import tinam.Listener;
 import tinam.Pattern;
+import tinam.Provider;
 import tinam.Rule;
+import tinam.Verifier;
 import tinam.Writer;
 
 import java.io.OutputStream;
@@ -18,9 +23,45 @@ import tinam.Grammar;
 
 public final class Generator {
   public static void generate(OutputStream output) {
-    Writer.write(new OutputStreamWriter(output), new Generator().grammar());
+    generate(output, Listener.NONE);
   }
 
+  public static void generate(OutputStream output, Listener listener) {
+    generate(output, listener, false);
+  }
+
+  public static void generate(OutputStream output, Listener listener,
+    boolean eliminate) {
+    generate(output, listener, eliminate, Writer.Emission.DEFAULT);
+  }
+
+  public static void generate(OutputStream output, Listener listener,
+    boolean eliminate, Writer.Emission emission) {
+    write(output, prepare(listener, eliminate), emission, listener);
+  }
+
+  public static Grammar prepare(Listener listener, boolean eliminate) {
+    var start   = System.nanoTime();
+    var grammar = new Generator().grammar();
+    listener.phase(Listener.Phase.CONSTRUCTION, System.nanoTime() - start);
+    if (eliminate) grammar = Eliminator.eliminate(grammar, listener);
+    else Eliminator.analyze(grammar, listener);
+    return grammar;
+  }
+
+  public static void write(OutputStream output, Grammar written,
+    Writer.Emission emission, Listener listener) {
+    if (emission != Writer.Emission.DEFAULT)
+      Verifier.verify(written, emission, listener);
+    Writer.write(new OutputStreamWriter(output), written, emission, listener);
+  }
+
+  public static void encode(OutputStream output, Grammar encoded) {
+    Encoder.encode(output, encoded);
+  }
+
+  public static Provider provider() { return () -> new Generator().grammar(); }
+
   private final Rule documentation = unconditional(
     combined(delimitated(scoped("keyword.other"), all("`"), all("`")),
       delimitated(scoped("keyword.other"), all("["), all("]")),
@@ -4,18 +4,116 @@ import java.io.BufferedOutputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import tinam.Eliminator.Shadow;
+import tinam.Events;
+import tinam.Listener;
+import tinam.Pattern;
+import tinam.Rule;
+import tinam.Writer;
 
 final class Main {
   public static void main(String[] arguments) {
-    var start = System.nanoTime();
-    var file  = "thrice.tmLanguage.json";
+    var start    = System.nanoTime();
+    var file     = "thrice.tmLanguage.json";
+    var encoded  = "thrice.grammar";
+    var report   = new Report();
+    var options  = List.of(arguments);
+    var listener = options.contains("--events")
+      ? Listener.of(report, Events.of())
+      : report;
+    var emission = options.contains("--minimal")
+      ? Writer.Emission.MINIMAL
+      : Writer.Emission.DEFAULT;
+    var grammar  =
+      Generator.prepare(listener, options.contains("--eliminate"));
     try (var output =
       new BufferedOutputStream(new FileOutputStream(Path.of(file).toFile()))) {
-      Generator.generate(output);
+      Generator.write(output, grammar, emission, listener);
+    } catch (IOException exception) {
+      exception.printStackTrace();
+    }
+    try (var output = new BufferedOutputStream(
+      new FileOutputStream(Path.of(encoded).toFile()))) {
+      Generator.encode(output, grammar);
     } catch (IOException exception) {
       exception.printStackTrace();
     }
     var elapsed = System.nanoTime() - start;
-    System.out.printf("Created `%s` in %.3f s.%n", file, elapsed / 1e9);
+    report.print();
+    System.out.printf("Created `%s` and `%s` in %.3f s.%n", file, encoded,
+      elapsed / 1e9);
+  }
+
+  private static final class Report implements Listener {
+    private final Map<Phase, Long>     phases    = new EnumMap<>(Phase.class);
+    private final List<String>         rules     = new ArrayList<>();
+    private final List<Long>           emissions = new ArrayList<>();
+    private final Map<String, Integer> includes  = new LinkedHashMap<>();
+    private final List<Shadow>         shadows   = new ArrayList<>();
+
+    private int  patterns;
+    private long longest;
+    private int  deepest;
+    private int  captures;
+
+    @Override
+    public void phase(Phase phase, long nanoseconds) {
+      phases.merge(phase, nanoseconds, Long::sum);
+    }
+
+    @Override
+    public void topLevel(int index, Rule rule, long emitted) {
+      rules.add("#" + index + " " + rule.data().scope().orElse(""));
+      emissions.add(emitted);
+    }
+
+    @Override
+    public void repository(String name, Rule rule, long emitted) {
+      rules.add("repository #" + name);
+      emissions.add(emitted);
+    }
+
+    @Override
+    public void pattern(String entry, Rule rule, String name,
+      Pattern pattern, long length, int depth, int captures) {
+      patterns++;
+      longest        = Math.max(longest, length);
+      deepest        = Math.max(deepest, depth);
+      this.captures += captures;
+    }
+
+    @Override
+    public void include(String name, int hits) { includes.put(name, hits); }
+
+    @Override
+    public void shadow(Shadow shadow) { shadows.add(shadow); }
+
+    private void print() {
+      phases.forEach((phase, nanoseconds) -> System.out
+        .printf("%-12s %10.3f ms%n", phase, nanoseconds / 1e6));
+      for (var i = 0; i < rules.size(); i++)
+        System.out.printf("%8d ch  %s%n", emissions.get(i), rules.get(i));
+      System.out.printf(
+        "%d patterns, longest %d ch, deepest %d, %d captures in total.%n",
+        patterns, longest, deepest, captures);
+      includes.forEach((name, hits) -> System.out
+        .printf("Included `#%s` %d times.%n", name, hits));
+      for (var shadow : shadows) switch (shadow) {
+      case Shadow.Alternative alternative -> System.out.printf(
+        "Alternative `%s` is shadowed by `%s`.%n",
+        Writer.regex(alternative.shadowed(), Writer.Emission.DEFAULT),
+        Writer.regex(alternative.by(), Writer.Emission.DEFAULT));
+      case Shadow.Entry entry -> System.out.printf(
+        "Rule `%s` is shadowed by `%s`.%n",
+        entry.shadowed().data().scope().orElse(""),
+        entry.by().data().scope().orElse(""));
+      }
+    }
   }
 }